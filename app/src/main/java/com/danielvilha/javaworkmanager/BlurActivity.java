@@ -9,14 +9,27 @@ import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.util.Size;
 import android.view.View;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.RadioGroup;
+import android.widget.SeekBar;
+import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.resource.bitmap.FitCenter;
+import com.danielvilha.javaworkmanager.metrics.ChainMetrics;
+import com.danielvilha.javaworkmanager.preview.BlurTransformation;
 import com.danielvilha.javaworkmanager.viewmodel.BlurViewModel;
+import com.danielvilha.javaworkmanager.workers.OutputSpec;
+import com.danielvilha.javaworkmanager.workers.WorkExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class BlurActivity extends AppCompatActivity {
 
@@ -24,6 +37,14 @@ public class BlurActivity extends AppCompatActivity {
     private BlurViewModel mViewModel;
     private ImageView mImageView;
     private ProgressBar mProgressBar;
+    private SeekBar mStrengthSeekBar;
+    private RadioGroup mOutputFormatGroup;
+    private RadioGroup mBlurEngineGroup;
+    private RadioGroup mPowerPolicyGroup;
+    private CheckBox mFusedBlurCheckBox, mReducedQualityCheckBox;
+    private TextView mStatusText;
+    // Every image picked, empty unless more than one was
+    private final List<Uri> mBatchUris = new ArrayList<>();
     private Button mGoButton, mOutputButton, mCancelButton;
     //endregion
 
@@ -42,6 +63,13 @@ public class BlurActivity extends AppCompatActivity {
         mGoButton = findViewById(R.id.go_button);
         mOutputButton = findViewById(R.id.see_file_button);
         mCancelButton = findViewById(R.id.cancel_button);
+        mStrengthSeekBar = findViewById(R.id.blur_strength);
+        mOutputFormatGroup = findViewById(R.id.output_format);
+        mBlurEngineGroup = findViewById(R.id.blur_engine);
+        mPowerPolicyGroup = findViewById(R.id.power_policy);
+        mFusedBlurCheckBox = findViewById(R.id.fused_blur);
+        mReducedQualityCheckBox = findViewById(R.id.reduced_quality);
+        mStatusText = findViewById(R.id.status_text);
 
         // Image uri should be stored in the ViewModel; put it there then display
         Intent intent = getIntent();
@@ -51,8 +79,43 @@ public class BlurActivity extends AppCompatActivity {
             Glide.with(this).load(mViewModel.getImageUri()).into(mImageView);
         }
 
+        ArrayList<String> imageUrisExtra = intent.getStringArrayListExtra(Constants.KEY_IMAGE_URIS);
+        if (imageUrisExtra != null) {
+            for (String imageUri : imageUrisExtra) {
+                mBatchUris.add(Uri.parse(imageUri));
+            }
+        }
+
+        // Preview the blur as soon as the size of the image is known, and on every strength change
+        mViewModel.getImageSize().observe(this, size -> showPreview());
+        mStrengthSeekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                showPreview();
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) { }
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) { }
+        });
+
         // Setup blur image file button
-        mGoButton.setOnClickListener(view -> mViewModel.applyBlur(BlurActivity.this.getBlurLevel()));
+        mGoButton.setOnClickListener(view -> {
+            mViewModel.setBlurEngine(getBlurEngine());
+            mViewModel.setFusedBlur(mFusedBlurCheckBox.isChecked());
+            mViewModel.setPixelQuality(mReducedQualityCheckBox.isChecked()
+                    ? Constants.PIXEL_QUALITY_REDUCED : Constants.PIXEL_QUALITY_FULL);
+            mViewModel.setPowerPolicy(getPowerPolicy());
+            mStatusText.setVisibility(View.GONE);
+
+            if (mBatchUris.isEmpty()) {
+                mViewModel.applyBlur(getBlurStrength(), getOutputSpec());
+            } else {
+                mViewModel.applyBlurBatch(mBatchUris, getBlurStrength(), getOutputSpec());
+            }
+        });
 
         mOutputButton.setOnClickListener(view -> {
             Uri currentUri = mViewModel.getOutputUri();
@@ -65,7 +128,20 @@ public class BlurActivity extends AppCompatActivity {
         });
 
         // Hookup the Cancel button
-        mCancelButton.setOnClickListener(view -> mViewModel.cancelWork());
+        mCancelButton.setOnClickListener(view -> {
+            if (mBatchUris.isEmpty()) {
+                mViewModel.cancelWork();
+            } else {
+                mViewModel.cancelBatch();
+            }
+        });
+
+        // Blurred and saved the same way before, nothing had to run
+        mViewModel.getCachedOutputUri().observe(this, cachedUri -> {
+            showWorkFinished();
+            mViewModel.setOutputUri(cachedUri.toString());
+            mOutputButton.setVisibility(View.VISIBLE);
+        });
 
         mViewModel.getOutputWorkInfo().observe(this, listOfWorkInfo -> {
 
@@ -74,8 +150,7 @@ public class BlurActivity extends AppCompatActivity {
                 return;
             }
 
-            // We only care about the first output status.
-            // Every continuation has only one worker tagged TAG_OUTPUT
+            // Only the save request of the last chain is listed, older chains are ignored
             WorkInfo workInfo = listOfWorkInfo.get(0);
 
             boolean finished = workInfo.getState().isFinished();
@@ -83,6 +158,7 @@ public class BlurActivity extends AppCompatActivity {
                 showWorkInProgress();
             } else {
                 showWorkFinished();
+                showChainMetrics();
                 Data outputData = workInfo.getOutputData();
 
                 String outputImageUri = outputData.getString(Constants.KEY_IMAGE_URI);
@@ -94,6 +170,70 @@ public class BlurActivity extends AppCompatActivity {
                 }
             }
         });
+
+        // Timings and memory of the chain, shown once it is done
+        mViewModel.getChainMetrics().observe(this, chainMetrics -> showChainMetrics());
+
+        mViewModel.getBatchStatus().observe(this, batchStatus -> {
+            if (batchStatus == null) {
+                return;
+            }
+
+            if (batchStatus.isFinished()) {
+                showWorkFinished();
+            } else {
+                showWorkInProgress();
+            }
+            mStatusText.setText(getString(R.string.batch_status, batchStatus.getSaved(),
+                    batchStatus.getTotal(), batchStatus.getFailed()));
+            mStatusText.setVisibility(View.VISIBLE);
+        });
+    }
+    //endregion
+
+    //region showPreview
+    /**
+     * Shows a thumbnail of the image blurred at the selected strength. The thumbnail is blurred by
+     * Glide with the kernel of the workers, so it shows up in a few milliseconds.
+     */
+    private void showPreview() {
+        Uri imageUri = mViewModel.getImageUri();
+        Size size = mViewModel.getImageSize().getValue();
+        if (imageUri == null || size == null) {
+            return;
+        }
+
+        float radius = mViewModel.getBlurRadius(getBlurStrength());
+        BlurTransformation blur = new BlurTransformation(WorkExecutors.getInstance(this).cpu(), radius,
+                Math.max(size.getWidth(), size.getHeight()));
+
+        Glide.with(this)
+                .load(imageUri)
+                .override(Constants.PREVIEW_MAX_DIMENSION)
+                .transform(new FitCenter(), blur)
+                // The blur reads the pixels back, which hardware bitmaps don't allow
+                .disallowHardwareConfig()
+                .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
+                // Keep the previous preview until the new one is ready
+                .placeholder(mImageView.getDrawable())
+                .into(mImageView);
+    }
+    //endregion
+
+    //region showChainMetrics
+    /**
+     * Shows the timings and memory of the last chain, if it has finished
+     */
+    private void showChainMetrics() {
+        ChainMetrics chainMetrics = mViewModel.getChainMetrics().getValue();
+        if (chainMetrics == null || chainMetrics.getValues().isEmpty()
+                || mGoButton.getVisibility() != View.VISIBLE) {
+            return;
+        }
+
+        mStatusText.setText(getString(R.string.chain_metrics, chainMetrics.getTotalWallMillis(),
+                chainMetrics.getPeakBitmapBytes() / 1024));
+        mStatusText.setVisibility(View.VISIBLE);
     }
     //endregion
 
@@ -120,24 +260,60 @@ public class BlurActivity extends AppCompatActivity {
     }
     //endregion
 
-    //region getBlurLevel
+    //region getBlurStrength
     /**
-     * Get the blur level from the radio button as an integer
-     * @return Integer representing the amount of times to blur the image
+     * Get the blur strength from the seek bar
+     * @return Strength between 0 and 1
      */
-    private int getBlurLevel() {
-        RadioGroup radioGroup = findViewById(R.id.radio_blur_group);
-
-        switch(radioGroup.getCheckedRadioButtonId()) {
-            case R.id.radio_blur_lv_1:
-                return 1;
-            case R.id.radio_blur_lv_2:
-                return 2;
-            case R.id.radio_blur_lv_3:
-                return 3;
+    private float getBlurStrength() {
+        return (float) mStrengthSeekBar.getProgress() / mStrengthSeekBar.getMax();
+    }
+    //endregion
+
+    //region getBlurEngine
+    /**
+     * Get the blur engine from the radio group
+     * @return One of the BLUR_ENGINE constants
+     */
+    private String getBlurEngine() {
+        if (mBlurEngineGroup.getCheckedRadioButtonId() == R.id.blur_engine_renderscript) {
+            return Constants.BLUR_ENGINE_RENDERSCRIPT;
+        }
+        return Constants.BLUR_ENGINE_JAVA;
+    }
+    //endregion
+
+    //region getPowerPolicy
+    /**
+     * Get the power policy from the radio group
+     * @return One of the POWER_POLICY constants
+     */
+    private String getPowerPolicy() {
+        switch (mPowerPolicyGroup.getCheckedRadioButtonId()) {
+            case R.id.power_policy_quality:
+                return Constants.POWER_POLICY_QUALITY;
+            case R.id.power_policy_saver:
+                return Constants.POWER_POLICY_SAVER;
+            default:
+                return Constants.POWER_POLICY_ADAPTIVE;
         }
+    }
+    //endregion
 
-        return 1;
+    //region getOutputSpec
+    /**
+     * Get the output format from the radio group, lossy formats at their default quality
+     * @return Format the image is saved in
+     */
+    private OutputSpec getOutputSpec() {
+        switch (mOutputFormatGroup.getCheckedRadioButtonId()) {
+            case R.id.output_jpeg:
+                return new OutputSpec(Constants.OUTPUT_FORMAT_JPEG, Constants.OUTPUT_DEFAULT_QUALITY, 0);
+            case R.id.output_webp:
+                return new OutputSpec(Constants.OUTPUT_FORMAT_WEBP, Constants.OUTPUT_DEFAULT_QUALITY, 0);
+            default:
+                return OutputSpec.PNG;
+        }
     }
     //endregion
 }
@@ -0,0 +1,29 @@
+package com.danielvilha.javaworkmanager;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Configuration;
+
+import com.danielvilha.javaworkmanager.workers.WorkExecutors;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Initializes WorkManager on demand with the app's own executors, in place of the default
+ * initializer removed from the manifest.
+ */
+public class BlurApplication extends Application implements Configuration.Provider {
+
+    //region getWorkManagerConfiguration
+    @NonNull
+    @Override
+    public Configuration getWorkManagerConfiguration() {
+        return new Configuration.Builder()
+                .setExecutor(WorkExecutors.getInstance(this).io())
+                .setMinimumLoggingLevel(BuildConfig.DEBUG ? Log.DEBUG : Log.INFO)
+                .build();
+    }
+    //endregion
+}
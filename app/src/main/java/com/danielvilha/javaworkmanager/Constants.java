@@ -13,17 +13,137 @@ public final class Constants {
     public static final CharSequence NOTIFICATION_TITLE = "WorkRequest Starting";
     public static final String CHANNEL_ID = "VERBOSE_NOTIFICATION" ;
     public static final int NOTIFICATION_ID = 1;
+    // Notification of the current batch, the current chain uses NOTIFICATION_ID
+    public static final int BATCH_NOTIFICATION_ID = 2;
+    // Shortest delay between two updates of the notification of a chain
+    public static final long NOTIFICATION_MIN_INTERVAL_MILLIS = 500;
+
+    // Progress keys, published by the workers through setProgressAsync
+    public static final String KEY_PROGRESS_PASS = "KEY_PROGRESS_PASS";
+    public static final String KEY_PROGRESS_PASS_COUNT = "KEY_PROGRESS_PASS_COUNT";
+    public static final String KEY_PROGRESS_PERCENT = "KEY_PROGRESS_PERCENT";
 
     // The name of the image manipulation work
     public static final String IMAGE_MANIPULATION_WORK_NAME = "image_manipulation_work";
+    // Shared by every blur chain, a new request cancels the chains of the other requests
+    public static final String TAG_IMAGE_MANIPULATION = "IMAGE_MANIPULATION";
+    // The name of the work evicting old files of OUTPUT_PATH
+    public static final String OUTPUT_EVICTION_WORK_NAME = "output_eviction_work";
+    // Prefix of the tag shared by all the work requests of a chain
+    public static final String TAG_CHAIN_PREFIX = "CHAIN_";
+    // Position of a blur pass in its chain
+    public static final String KEY_PASS_INDEX = "KEY_PASS_INDEX";
+    public static final String KEY_PASS_COUNT = "KEY_PASS_COUNT";
+
+    // Batch constants
+    // Maximum number of images of a batch processed at the same time
+    public static final int MAX_BATCH_CONCURRENCY = 3;
+    public static final String KEY_BATCH_TAG = "KEY_BATCH_TAG";
+    public static final String KEY_BATCH_SAVED = "KEY_BATCH_SAVED";
+    public static final String KEY_BATCH_FAILED = "KEY_BATCH_FAILED";
+    public static final String TAG_BATCH_PREFIX = "BATCH_";
+    public static final String TAG_BATCH_OUTPUT = "BATCH_OUTPUT";
+    // Set by a worker of a batch that failed without failing the rest of its lane
+    public static final String KEY_FAILED = "KEY_FAILED";
 
     // Other keys
     public static final String OUTPUT_PATH = "blur_filter_outputs";
+    // Disk quota of OUTPUT_PATH, enforced by CleanupWorker when the device is idle
+    public static final long OUTPUT_STORE_MAX_BYTES = 256 * 1024 * 1024;
+    // Result cache constants
+    public static final String RESULT_CACHE_PATH = "blur_result_cache";
+    public static final int RESULT_CACHE_MAX_ENTRIES = 32;
+    public static final long RESULT_CACHE_MAX_BYTES = 128 * 1024 * 1024;
+    // Key of the result cache entry the SaveImageToFileWorker records its result in
+    public static final String KEY_CACHE_KEY = "KEY_CACHE_KEY";
+    // Index of the blur levels produced for each source image
+    public static final String INTERMEDIATE_INDEX_FILE = "intermediate_index";
+    public static final int INTERMEDIATE_INDEX_MAX_LEVELS = 64;
+    // Source image a BlurWorker output is recorded against, and the sigma already blurred into its input
+    public static final String KEY_SOURCE_KEY = "KEY_SOURCE_KEY";
+    public static final String KEY_SOURCE_SIGMA = "KEY_SOURCE_SIGMA";
     public static final String KEY_IMAGE_URI = "KEY_IMAGE_URI";
+    // Every image picked at once, blurred as a batch
+    public static final String KEY_IMAGE_URIS = "KEY_IMAGE_URIS";
     public static final String TAG_OUTPUT = "OUTPUT";
 
+    // Blur engine selection, the RenderScript engine is kept around to compare against
+    public static final String KEY_BLUR_ENGINE = "KEY_BLUR_ENGINE";
+    public static final String BLUR_ENGINE_JAVA = "java";
+    public static final String BLUR_ENGINE_RENDERSCRIPT = "renderscript";
+
+    // Radius of a single blur pass, the unit the strength of the non fused chain is split in
+    public static final float BLUR_RADIUS = 10.f;
+    // Radius of a blur of strength 1, in pixels of the original image
+    public static final float MAX_BLUR_RADIUS = 100.f;
+    // Largest number of BlurWorkers of a non fused chain
+    public static final int MAX_BLUR_CHAIN_PASSES = 3;
+    // Blurs larger than this, in pixels of the decoded image, use the constant time box blur
+    public static final float BOX_BLUR_MIN_RADIUS = 16.f;
+    // Bump whenever the blur output changes for the same input, invalidates the result cache
+    public static final int BLUR_ENGINE_VERSION = 2;
+
+    // Pixel quality, at reduced quality opaque images are decoded and carried as RGB_565
+    public static final String KEY_PIXEL_QUALITY = "KEY_PIXEL_QUALITY";
+    public static final String PIXEL_QUALITY_FULL = "full";
+    public static final String PIXEL_QUALITY_REDUCED = "reduced";
+
+    // Power policy, how the blur trades quality for power when throttled or short on battery
+    public static final String KEY_POWER_POLICY = "KEY_POWER_POLICY";
+    // Never trade quality
+    public static final String POWER_POLICY_QUALITY = "quality";
+    // Trade quality past THERMAL_STATUS_MODERATE, in power save mode or on a low battery
+    public static final String POWER_POLICY_ADAPTIVE = "adaptive";
+    // Always trade some quality, more when throttled
+    public static final String POWER_POLICY_SAVER = "saver";
+    // Battery level, in percent, below which the blur saves power when not charging
+    public static final int LOW_BATTERY_PERCENT = 15;
+    // Set by a BlurWorker that traded quality for power, such results are neither cached nor reused
+    public static final String KEY_POWER_DEGRADED = "KEY_POWER_DEGRADED";
+
+    // Format of the saved image, see OutputSpec
+    public static final String KEY_OUTPUT_FORMAT = "KEY_OUTPUT_FORMAT";
+    public static final String KEY_OUTPUT_QUALITY = "KEY_OUTPUT_QUALITY";
+    public static final String KEY_OUTPUT_MAX_BYTES = "KEY_OUTPUT_MAX_BYTES";
+    public static final String OUTPUT_FORMAT_PNG = "png";
+    public static final String OUTPUT_FORMAT_JPEG = "jpeg";
+    public static final String OUTPUT_FORMAT_WEBP = "webp";
+    // Quality of the lossy formats when none is given
+    public static final int OUTPUT_DEFAULT_QUALITY = 80;
+    // Lowest quality the search for a byte size target goes down to
+    public static final int OUTPUT_MIN_QUALITY = 10;
+
+    // Radius of the blur a BlurWorker applies, in pixels of the original image
+    public static final String KEY_BLUR_RADIUS = "KEY_BLUR_RADIUS";
+
+    // Largest radius supported by ScriptIntrinsicBlur
+    public static final float MAX_RENDERSCRIPT_RADIUS = 25.f;
+
     public static final long DELAY_TIME_MILLIS = 3000;
 
+    // Decode stage limits
+    // Largest width or height an image is decoded at
+    public static final int MAX_DECODE_DIMENSION = 4096;
+    // Pixels kept for each sigma of the blur applied after decoding
+    public static final float MIN_BLUR_SIGMA = 3.f;
+    // Largest downscale applied because of the blur
+    public static final float MAX_BLUR_DOWNSCALE = 4.f;
+    // Size of an intermediate image relative to the original one
+    public static final String KEY_IMAGE_SCALE = "KEY_IMAGE_SCALE";
+
+    // Images whose decoded pixels take more than this are blurred strip by strip
+    public static final long TILED_BLUR_MIN_BYTES = 32 * 1024 * 1024;
+    // Output rows produced by each strip of the tiled blur
+    public static final int TILE_STRIP_ROWS = 256;
+
+    // Largest width or height of the blurred preview shown before any work runs
+    public static final int PREVIEW_MAX_DIMENSION = 512;
+
+    // Memory budget of the bitmaps handed between workers without going through disk
+    public static final int INTERMEDIATE_STORE_MAX_BYTES = 64 * 1024 * 1024;
+    // Size of the bitmap pool shared by Glide and the workers, halved on low RAM devices
+    public static final long BITMAP_POOL_MAX_BYTES = 64 * 1024 * 1024;
+
     // Ensures this class is never instantiated
     private Constants() {}
 }
@@ -9,13 +9,13 @@ import android.Manifest;
 import android.app.Activity;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.view.View;
 import android.widget.Toast;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -59,6 +59,8 @@ public class MainActivity extends AppCompatActivity {
                 Intent chooseIntent = new Intent(
                         Intent.ACTION_PICK,
                         MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
+                // Picking more than one image blurs them as a batch
+                chooseIntent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
                 MainActivity.this.startActivityForResult(chooseIntent, REQUEST_CODE_IMAGE);
             }
         });
@@ -139,20 +141,26 @@ public class MainActivity extends AppCompatActivity {
 
     //region handleImageRequestResult
     private void handleImageRequestResult(Intent data) {
-        Uri imageUri = null;
+        ArrayList<String> imageUris = new ArrayList<>();
         if (data.getClipData() != null) {
-            imageUri = data.getClipData().getItemAt(0).getUri();
+            for (int i = 0; i < data.getClipData().getItemCount(); i++) {
+                imageUris.add(data.getClipData().getItemAt(i).getUri().toString());
+            }
         } else if (data.getData() != null) {
-            imageUri = data.getData();
+            imageUris.add(data.getData().toString());
         }
 
-        if (imageUri == null) {
+        if (imageUris.isEmpty()) {
             Log.e(TAG, "Invalid input image Uri.");
             return;
         }
 
+        // The first image is shown, the others are only blurred with it
         Intent filterIntent = new Intent(this, BlurActivity.class);
-        filterIntent.putExtra(Constants.KEY_IMAGE_URI, imageUri.toString());
+        filterIntent.putExtra(Constants.KEY_IMAGE_URI, imageUris.get(0));
+        if (imageUris.size() > 1) {
+            filterIntent.putStringArrayListExtra(Constants.KEY_IMAGE_URIS, imageUris);
+        }
         startActivity(filterIntent);
     }
     //endregion
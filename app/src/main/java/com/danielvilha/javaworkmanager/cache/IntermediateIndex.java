@@ -0,0 +1,258 @@
+package com.danielvilha.javaworkmanager.cache;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.danielvilha.javaworkmanager.Constants;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Index of the blur levels produced for each source image. Every BlurWorker records its output
+ * against the source and the total sigma blurred into it, in pixels of the source.
+ *
+ * Chained Gaussian blurs add up their variances, so a request for a stronger blur can start from
+ * the strongest level already produced and only blur the remaining sigma. Moving up a level then
+ * costs one pass instead of the whole chain.
+ *
+ * Levels point to files of the OutputStore, or of the ResultCache once moved there. Files evicted
+ * since are dropped when looked up. Like the ResultCache index, the index is a small text file
+ * rewritten on every change.
+ */
+public final class IntermediateIndex {
+
+    //region Variables
+    private static final String TAG = IntermediateIndex.class.getSimpleName();
+
+    private static final int INDEX_VERSION = 1;
+
+    private static IntermediateIndex sInstance;
+
+    private final AtomicFile mIndexFile;
+    // Access ordered, the first level is the least recently used one
+    private final Map<String, Level> mLevels = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean mLoaded;
+    //endregion
+
+    //region Level
+    /**
+     * A blurred version of a source image
+     */
+    public static final class Level {
+        public final String sourceKey;
+        // Total sigma of the blur, in pixels of the source image
+        public final float sigma;
+        // Size of the image relative to the source image
+        public final float scale;
+        public final File file;
+
+        Level(String sourceKey, float sigma, float scale, File file) {
+            this.sourceKey = sourceKey;
+            this.sigma = sigma;
+            this.scale = scale;
+            this.file = file;
+        }
+    }
+    //endregion
+
+    //region getInstance
+    public static synchronized IntermediateIndex getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new IntermediateIndex(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+    //endregion
+
+    //region IntermediateIndex
+    private IntermediateIndex(Context applicationContext) {
+        mIndexFile = new AtomicFile(new File(applicationContext.getFilesDir(), Constants.INTERMEDIATE_INDEX_FILE));
+    }
+    //endregion
+
+    //region sourceKey
+    /**
+     * @param contentHash Hash returned by {@link ResultCache#hashContent}
+     * @param pixelQuality One of the PIXEL_QUALITY constants
+     * @return Key the levels of the image blurred at this quality are recorded under
+     */
+    @NonNull
+    public static String sourceKey(@NonNull String contentHash, @NonNull String pixelQuality) {
+        return String.format("%s|%s|%s", contentHash, pixelQuality, Constants.BLUR_ENGINE_VERSION);
+    }
+    //endregion
+
+    //region record
+    /**
+     * Records a level, replacing any other level of the source at the same sigma
+     * @param sourceKey Key returned by {@link #sourceKey(String, String)}
+     * @param sigma Total sigma of the blur, in pixels of the source image
+     * @param scale Size of the image relative to the source image
+     * @param file Blurred image, fully written
+     */
+    @WorkerThread
+    public synchronized void record(@NonNull String sourceKey, float sigma, float scale, @NonNull File file) {
+        load();
+
+        mLevels.put(levelKey(sourceKey, sigma), new Level(sourceKey, sigma, scale, file));
+
+        Iterator<Level> iterator = mLevels.values().iterator();
+        while (mLevels.size() > Constants.INTERMEDIATE_INDEX_MAX_LEVELS && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        save();
+    }
+    //endregion
+
+    //region findDeepest
+    /**
+     * Looks up the strongest level of the source that is not stronger than maxSigma
+     * @param sourceKey Key returned by {@link #sourceKey(String, String)}
+     * @param maxSigma Sigma of the requested blur, in pixels of the source image
+     * @return The level, or null if the source has none usable
+     */
+    @WorkerThread
+    @Nullable
+    public synchronized Level findDeepest(@NonNull String sourceKey, float maxSigma) {
+        load();
+
+        Level deepest = null;
+        boolean changed = false;
+        Iterator<Level> iterator = mLevels.values().iterator();
+        while (iterator.hasNext()) {
+            Level level = iterator.next();
+            if (!level.sourceKey.equals(sourceKey)) {
+                continue;
+            }
+            if (!level.file.isFile()) {
+                iterator.remove();
+                changed = true;
+            } else if (level.sigma <= maxSigma && (deepest == null || level.sigma > deepest.sigma)) {
+                deepest = level;
+            }
+        }
+
+        if (deepest != null) {
+            // Mark it as used
+            mLevels.get(levelKey(deepest.sourceKey, deepest.sigma));
+            changed = true;
+        }
+        if (changed) {
+            save();
+        }
+        return deepest;
+    }
+    //endregion
+
+    //region onMoved
+    /**
+     * Follows a file moved by the ResultCache
+     */
+    @WorkerThread
+    synchronized void onMoved(@NonNull File from, @NonNull File to) {
+        load();
+
+        boolean changed = false;
+        for (Map.Entry<String, Level> entry : mLevels.entrySet()) {
+            Level level = entry.getValue();
+            if (level.file.equals(from)) {
+                entry.setValue(new Level(level.sourceKey, level.sigma, level.scale, to));
+                changed = true;
+            }
+        }
+        if (changed) {
+            save();
+        }
+    }
+    //endregion
+
+    //region levelKey
+    private static String levelKey(String sourceKey, float sigma) {
+        return sourceKey + "|" + sigma;
+    }
+    //endregion
+
+    //region load
+    private void load() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+
+        if (!mIndexFile.getBaseFile().exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(mIndexFile.openRead(), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            if (!String.valueOf(INDEX_VERSION).equals(line)) {
+                // Written by another version, start over
+                return;
+            }
+
+            // Levels are written from the least to the most recently used
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 4) {
+                    continue;
+                }
+
+                try {
+                    float sigma = Float.parseFloat(fields[1]);
+                    float scale = Float.parseFloat(fields[2]);
+                    mLevels.put(levelKey(fields[0], sigma), new Level(fields[0], sigma, scale, new File(fields[3])));
+                } catch (NumberFormatException exception) {
+                    Log.w(TAG, "Skipping invalid level " + line);
+                }
+            }
+        } catch (IOException exception) {
+            Log.e(TAG, "Error reading the index", exception);
+            mLevels.clear();
+        }
+    }
+    //endregion
+
+    //region save
+    private void save() {
+        FileOutputStream out = null;
+        try {
+            out = mIndexFile.startWrite();
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write(INDEX_VERSION + "\n");
+
+            for (Level level : mLevels.values()) {
+                writer.write(String.format(Locale.US, "%s\t%s\t%s\t%s\n",
+                        level.sourceKey, level.sigma, level.scale, level.file.getAbsolutePath()));
+            }
+
+            writer.flush();
+            mIndexFile.finishWrite(out);
+        } catch (IOException exception) {
+            Log.e(TAG, "Error writing the index", exception);
+            if (out != null) {
+                mIndexFile.failWrite(out);
+            }
+        }
+    }
+    //endregion
+}
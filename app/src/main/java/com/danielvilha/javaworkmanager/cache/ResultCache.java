@@ -0,0 +1,360 @@
+package com.danielvilha.javaworkmanager.cache;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.BaseColumns;
+import android.text.TextUtils;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.danielvilha.javaworkmanager.Constants;
+import com.danielvilha.javaworkmanager.workers.OutputSpec;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Content addressed cache of blur results. Entries are keyed by the SHA-256 of the input image
+ * bytes, the blur parameters and BLUR_ENGINE_VERSION, so the same image blurred the same way maps
+ * to the same entry whatever Uri it came from.
+ *
+ * Each entry holds the blurred image, moved into RESULT_CACHE_PATH, and the MediaStore Uri it was
+ * saved to. The index is a small text file rewritten on every change, which keeps the entries
+ * across process restarts. The least recently used entries are dropped beyond
+ * RESULT_CACHE_MAX_ENTRIES or RESULT_CACHE_MAX_BYTES.
+ */
+public final class ResultCache {
+
+    //region Variables
+    private static final String TAG = ResultCache.class.getSimpleName();
+
+    private static final String INDEX_FILE_NAME = "index";
+    private static final int INDEX_VERSION = 2;
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private static ResultCache sInstance;
+
+    private final ContentResolver mResolver;
+    private final IntermediateIndex mIntermediates;
+    private final File mDirectory;
+    private final AtomicFile mIndexFile;
+    // Access ordered, the first entry is the least recently used one
+    private final Map<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean mLoaded;
+    //endregion
+
+    //region Entry
+    /**
+     * A cached result
+     */
+    public static final class Entry {
+        // Blurred image, before it was saved
+        public final File resultFile;
+        // Size of the blurred image divided by the size of its source
+        public final float scale;
+        // Where the image was saved in the MediaStore, or null
+        public final Uri savedUri;
+
+        Entry(File resultFile, float scale, Uri savedUri) {
+            this.resultFile = resultFile;
+            this.scale = scale;
+            this.savedUri = savedUri;
+        }
+    }
+    //endregion
+
+    //region getInstance
+    public static synchronized ResultCache getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new ResultCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+    //endregion
+
+    //region ResultCache
+    private ResultCache(Context applicationContext) {
+        mResolver = applicationContext.getContentResolver();
+        mIntermediates = IntermediateIndex.getInstance(applicationContext);
+        mDirectory = new File(applicationContext.getFilesDir(), Constants.RESULT_CACHE_PATH);
+        mIndexFile = new AtomicFile(new File(mDirectory, INDEX_FILE_NAME));
+    }
+    //endregion
+
+    //region hashContent
+    /**
+     * Hashes the bytes of an image. Reads the whole image, so never call it from the main thread.
+     * @param resolver Content resolver
+     * @param imageUri Image to hash
+     * @return Hex encoded SHA-256 of the image
+     * @throws IOException Throws if the image cannot be read
+     */
+    @WorkerThread
+    public static String hashContent(@NonNull ContentResolver resolver, @NonNull Uri imageUri) throws IOException {
+        MessageDigest digest = sha256();
+
+        try (InputStream in = resolver.openInputStream(imageUri)) {
+            if (in == null) {
+                throw new FileNotFoundException("Unable to open " + imageUri);
+            }
+
+            byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+    //endregion
+
+    //region keyFor
+    /**
+     * Computes the cache key of a blur request
+     * @param contentHash Hash of the image to blur, returned by {@link #hashContent(ContentResolver, Uri)}
+     * @param strength Blur strength
+     * @param fusedBlur True if the blur is applied by a single worker
+     * @param pixelQuality One of the PIXEL_QUALITY constants
+     * @param blurEngine One of the BLUR_ENGINE constants
+     * @param outputSpec Format the image is saved in
+     * @return Hex encoded key
+     */
+    public static String keyFor(@NonNull String contentHash, float strength, boolean fusedBlur,
+                                @NonNull String pixelQuality, @NonNull String blurEngine,
+                                @NonNull OutputSpec outputSpec) {
+        MessageDigest digest = sha256();
+
+        String parameters = String.format("%s|strength=%s|fused=%s|quality=%s|radius=%s|engine=%s|version=%s|output=%s",
+                contentHash, strength, fusedBlur, pixelQuality, Constants.MAX_BLUR_RADIUS, blurEngine,
+                Constants.BLUR_ENGINE_VERSION, outputSpec);
+        digest.update(parameters.getBytes(StandardCharsets.UTF_8));
+        return toHex(digest.digest());
+    }
+    //endregion
+
+    //region sha256
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+    //endregion
+
+    //region toHex
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+    //endregion
+
+    //region get
+    /**
+     * Looks a result up. Parts of the entry that don't exist anymore, like an image deleted from
+     * the gallery, are dropped from it.
+     * @param key Key returned by {@link #keyFor(String, float, boolean, String, String, OutputSpec)}
+     * @return The entry or null if nothing usable is cached for the key
+     */
+    @WorkerThread
+    @Nullable
+    public synchronized Entry get(@NonNull String key) {
+        load();
+
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        File resultFile = entry.resultFile != null && entry.resultFile.isFile() ? entry.resultFile : null;
+        Uri savedUri = entry.savedUri != null && exists(entry.savedUri) ? entry.savedUri : null;
+
+        if (resultFile == null && savedUri == null) {
+            mEntries.remove(key);
+            entry = null;
+        } else {
+            entry = new Entry(resultFile, entry.scale, savedUri);
+            mEntries.put(key, entry);
+        }
+
+        save();
+        return entry;
+    }
+    //endregion
+
+    //region put
+    /**
+     * Records a result. The result file is moved into the cache, unless it is there already.
+     * @param key Key returned by {@link #keyFor(String, float, boolean, String, String, OutputSpec)}
+     * @param resultFile Blurred image, fully written
+     * @param scale Size of the blurred image divided by the size of its source
+     * @param savedUri Where the image was saved in the MediaStore, or null
+     */
+    @WorkerThread
+    public synchronized void put(@NonNull String key, @NonNull File resultFile, float scale,
+                                 @Nullable Uri savedUri) {
+        load();
+
+        File cachedFile = resultFile;
+        if (!mDirectory.equals(resultFile.getParentFile())) {
+            String name = resultFile.getName();
+            cachedFile = new File(mDirectory, key + name.substring(name.lastIndexOf('.')));
+
+            if (!mDirectory.exists()) {
+                mDirectory.mkdirs(); // should succeed
+            }
+            if (resultFile.renameTo(cachedFile)) {
+                // The file may also be a blur level of its source
+                mIntermediates.onMoved(resultFile, cachedFile);
+            } else {
+                Log.w(TAG, "Unable to move " + resultFile + " to the cache");
+                cachedFile = null;
+            }
+        }
+
+        Entry previous = mEntries.get(key);
+        if (previous != null && previous.resultFile != null && !previous.resultFile.equals(cachedFile)) {
+            previous.resultFile.delete();
+        }
+
+        mEntries.put(key, new Entry(cachedFile, scale, savedUri));
+        trim();
+        save();
+    }
+    //endregion
+
+    //region trim
+    private void trim() {
+        long totalBytes = 0;
+        for (Entry entry : mEntries.values()) {
+            if (entry.resultFile != null) {
+                totalBytes += entry.resultFile.length();
+            }
+        }
+
+        Iterator<Entry> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()
+                && (mEntries.size() > Constants.RESULT_CACHE_MAX_ENTRIES || totalBytes > Constants.RESULT_CACHE_MAX_BYTES)) {
+            Entry entry = iterator.next();
+            if (entry.resultFile != null) {
+                totalBytes -= entry.resultFile.length();
+                entry.resultFile.delete();
+            }
+            iterator.remove();
+        }
+    }
+    //endregion
+
+    //region exists
+    /**
+     * @return True if the MediaStore still has the image
+     */
+    private boolean exists(Uri savedUri) {
+        try (Cursor cursor = mResolver.query(savedUri, new String[] { BaseColumns._ID }, null, null, null)) {
+            return cursor != null && cursor.moveToFirst();
+        } catch (SecurityException | IllegalArgumentException exception) {
+            return false;
+        }
+    }
+    //endregion
+
+    //region load
+    private void load() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+
+        if (!mIndexFile.getBaseFile().exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(mIndexFile.openRead(), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            if (!String.valueOf(INDEX_VERSION).equals(line)) {
+                // Written by another version, start over
+                return;
+            }
+
+            // Entries are written from the least to the most recently used
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length != 4) {
+                    continue;
+                }
+
+                try {
+                    File resultFile = TextUtils.isEmpty(fields[1]) ? null : new File(mDirectory, fields[1]);
+                    float scale = Float.parseFloat(fields[2]);
+                    Uri savedUri = TextUtils.isEmpty(fields[3]) ? null : Uri.parse(fields[3]);
+                    mEntries.put(fields[0], new Entry(resultFile, scale, savedUri));
+                } catch (NumberFormatException exception) {
+                    Log.w(TAG, "Skipping invalid entry " + line);
+                }
+            }
+        } catch (IOException exception) {
+            Log.e(TAG, "Error reading the index", exception);
+            mEntries.clear();
+        }
+    }
+    //endregion
+
+    //region save
+    private void save() {
+        if (!mDirectory.exists()) {
+            mDirectory.mkdirs(); // should succeed
+        }
+
+        FileOutputStream out = null;
+        try {
+            out = mIndexFile.startWrite();
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write(INDEX_VERSION + "\n");
+
+            for (Map.Entry<String, Entry> entry : mEntries.entrySet()) {
+                File resultFile = entry.getValue().resultFile;
+                Uri savedUri = entry.getValue().savedUri;
+                writer.write(String.format(Locale.US, "%s\t%s\t%s\t%s\n",
+                        entry.getKey(),
+                        resultFile == null ? "" : resultFile.getName(),
+                        entry.getValue().scale,
+                        savedUri == null ? "" : savedUri.toString()));
+            }
+
+            writer.flush();
+            mIndexFile.finishWrite(out);
+        } catch (IOException exception) {
+            Log.e(TAG, "Error writing the index", exception);
+            if (out != null) {
+                mIndexFile.failWrite(out);
+            }
+        }
+    }
+    //endregion
+}
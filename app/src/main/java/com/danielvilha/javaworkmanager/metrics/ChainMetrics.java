@@ -0,0 +1,99 @@
+package com.danielvilha.javaworkmanager.metrics;
+
+import androidx.annotation.NonNull;
+import androidx.work.WorkInfo;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Breakdown of the metrics of a whole chain, built from the output Data of its workers. Metrics
+ * of the same name, like those of chained BlurWorkers, add up, except peaks which keep the
+ * largest value.
+ */
+public final class ChainMetrics {
+
+    //region Variables
+    private final Map<String, Long> mValues;
+    //endregion
+
+    //region ChainMetrics
+    private ChainMetrics(Map<String, Long> values) {
+        mValues = Collections.unmodifiableMap(values);
+    }
+    //endregion
+
+    //region from
+    /**
+     * @param workInfos WorkInfo of every request of the chain
+     * @return Metrics of the workers of the chain that succeeded
+     */
+    public static ChainMetrics from(@NonNull List<WorkInfo> workInfos) {
+        Map<String, Long> values = new TreeMap<>();
+
+        for (WorkInfo workInfo : workInfos) {
+            if (workInfo.getState() != WorkInfo.State.SUCCEEDED) {
+                continue;
+            }
+
+            for (Map.Entry<String, Object> entry : workInfo.getOutputData().getKeyValueMap().entrySet()) {
+                if (entry.getKey().startsWith(WorkerMetrics.KEY_PREFIX) && entry.getValue() instanceof Long) {
+                    String name = entry.getKey().substring(WorkerMetrics.KEY_PREFIX.length());
+                    Long previous = values.get(name);
+                    long value = (Long) entry.getValue();
+                    if (previous != null) {
+                        // Peaks of different workers don't happen at the same time
+                        value = name.endsWith(WorkerMetrics.NAME_PEAK_BITMAP_BYTES)
+                                ? Math.max(previous, value)
+                                : previous + value;
+                    }
+                    values.put(name, value);
+                }
+            }
+        }
+
+        return new ChainMetrics(values);
+    }
+    //endregion
+
+    //region getValues
+    /**
+     * @return Every metric of the chain, sorted by name
+     */
+    public Map<String, Long> getValues() { return mValues; }
+    //endregion
+
+    //region getTotalWallMillis
+    /**
+     * @return Wall time spent in all the stages of the chain
+     */
+    public long getTotalWallMillis() {
+        long total = 0;
+        for (Map.Entry<String, Long> value : mValues.entrySet()) {
+            if (value.getKey().endsWith(WorkerMetrics.SUFFIX_WALL_MS)) {
+                total += value.getValue();
+            }
+        }
+        return total;
+    }
+    //endregion
+
+    //region getPeakBitmapBytes
+    /**
+     * @return Largest pixel memory held by any worker of the chain
+     */
+    public long getPeakBitmapBytes() {
+        long peak = 0;
+        for (Map.Entry<String, Long> value : mValues.entrySet()) {
+            if (value.getKey().endsWith(WorkerMetrics.NAME_PEAK_BITMAP_BYTES)) {
+                peak = Math.max(peak, value.getValue());
+            }
+        }
+        return peak;
+    }
+    //endregion
+}
@@ -0,0 +1,84 @@
+package com.danielvilha.javaworkmanager.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * In process registry of the metrics recorded by the workers, grouped by chain. Only the last
+ * MAX_CHAINS chains are kept. Metrics of chains that ran in another process are only available
+ * through the output Data of their workers, see {@link ChainMetrics}.
+ */
+public final class MetricsRegistry {
+
+    //region Variables
+    private static final int MAX_CHAINS = 32;
+
+    private static final MetricsRegistry sInstance = new MetricsRegistry();
+
+    private final Map<String, List<WorkerMetrics>> mChains =
+            new LinkedHashMap<String, List<WorkerMetrics>>(MAX_CHAINS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<WorkerMetrics>> eldest) {
+                    return size() > MAX_CHAINS;
+                }
+            };
+    //endregion
+
+    //region getInstance
+    public static MetricsRegistry getInstance() {
+        return sInstance;
+    }
+    //endregion
+
+    //region MetricsRegistry
+    private MetricsRegistry() { }
+    //endregion
+
+    //region record
+    /**
+     * Records the metrics of a worker that is done
+     * @param chainKey Key of the chain of the worker
+     * @param metrics Metrics of the worker, not modified afterwards
+     */
+    public synchronized void record(@NonNull String chainKey, @NonNull WorkerMetrics metrics) {
+        List<WorkerMetrics> chain = mChains.get(chainKey);
+        if (chain == null) {
+            chain = new ArrayList<>();
+            mChains.put(chainKey, chain);
+        }
+        chain.add(metrics);
+    }
+    //endregion
+
+    //region getChain
+    /**
+     * @param chainKey Key of a chain
+     * @return Metrics of the workers of the chain that are done, in the order they finished
+     */
+    @NonNull
+    public synchronized List<WorkerMetrics> getChain(@NonNull String chainKey) {
+        List<WorkerMetrics> chain = mChains.get(chainKey);
+        if (chain == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(chain);
+    }
+    //endregion
+
+    //region getChainKeys
+    /**
+     * @return Keys of the chains in the registry, least recently used first
+     */
+    @NonNull
+    public synchronized List<String> getChainKeys() {
+        return new ArrayList<>(mChains.keySet());
+    }
+    //endregion
+}
@@ -0,0 +1,194 @@
+package com.danielvilha.javaworkmanager.metrics;
+
+import android.graphics.Bitmap;
+import android.os.Debug;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.work.Data;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Timings and memory figures recorded by a single run of a worker. Each stage records its wall
+ * time and the CPU time of the worker thread; work the stage hands to other threads, like the
+ * bands of the blur, only shows up in the wall time. The peak bitmap bytes are the most pixel memory
+ * held at once, bitmaps and the planes the blur works on alike.
+ *
+ * Not thread safe, a worker records its metrics from one thread at a time.
+ */
+public final class WorkerMetrics {
+
+    //region Variables
+    public static final String STAGE_SLEEP = "sleep";
+    public static final String STAGE_DECODE = "decode";
+    public static final String STAGE_BLUR = "blur";
+    public static final String STAGE_ENCODE = "encode";
+    public static final String STAGE_WRITE = "write";
+    public static final String STAGE_MEDIASTORE = "mediastore";
+    public static final String STAGE_CLEANUP = "cleanup";
+
+    // Prefix of every metric put in the output Data of a worker
+    public static final String KEY_PREFIX = "METRIC_";
+
+    static final String SUFFIX_WALL_MS = ".wall_ms";
+    static final String SUFFIX_CPU_MS = ".cpu_ms";
+    static final String NAME_BYTES_READ = "bytes_read";
+    static final String NAME_BYTES_WRITTEN = "bytes_written";
+    static final String NAME_PEAK_BITMAP_BYTES = "peak_bitmap_bytes";
+
+    private final String mWorkerName;
+    // Wall and CPU nanoseconds of each stage, in the order they first ran
+    private final Map<String, long[]> mStages = new LinkedHashMap<>();
+    private long mBytesRead;
+    private long mBytesWritten;
+    private long mPixelBytes;
+    private long mPeakBitmapBytes;
+    //endregion
+
+    //region WorkerMetrics
+    /**
+     * @param workerName Name of the worker, used as a prefix of its metrics
+     */
+    public WorkerMetrics(@NonNull String workerName) {
+        mWorkerName = workerName;
+    }
+    //endregion
+
+    //region Stage
+    /**
+     * A running stage, its times are recorded when it is closed
+     */
+    public final class Stage implements AutoCloseable {
+
+        private final String mName;
+        private final long mStartWall = SystemClock.elapsedRealtimeNanos();
+        private final long mStartCpu = Debug.threadCpuTimeNanos();
+
+        private Stage(String name) {
+            mName = name;
+        }
+
+        @Override
+        public void close() {
+            long[] times = mStages.get(mName);
+            if (times == null) {
+                times = new long[2];
+                mStages.put(mName, times);
+            }
+            times[0] += SystemClock.elapsedRealtimeNanos() - mStartWall;
+            times[1] += Debug.threadCpuTimeNanos() - mStartCpu;
+        }
+    }
+    //endregion
+
+    //region stage
+    /**
+     * Starts a stage, to be closed when it is done. Stages of the same name add up.
+     * @param name Name of the stage, one of the STAGE constants
+     * @return The running stage
+     */
+    public Stage stage(@NonNull String name) {
+        return new Stage(name);
+    }
+    //endregion
+
+    //region addBytesRead
+    public void addBytesRead(long bytes) {
+        if (bytes > 0) {
+            mBytesRead += bytes;
+        }
+    }
+    //endregion
+
+    //region addBytesWritten
+    public void addBytesWritten(long bytes) {
+        if (bytes > 0) {
+            mBytesWritten += bytes;
+        }
+    }
+    //endregion
+
+    //region allocateBitmap
+    /**
+     * Records a bitmap allocated by the worker
+     * @param bitmap The new bitmap
+     */
+    public void allocateBitmap(@NonNull Bitmap bitmap) {
+        allocatePixels(bitmap.getAllocationByteCount());
+    }
+    //endregion
+
+    //region releaseBitmap
+    /**
+     * Records that a bitmap recorded by {@link #allocateBitmap(Bitmap)} is not used anymore
+     * @param bitmap The released bitmap, or null
+     */
+    public void releaseBitmap(@Nullable Bitmap bitmap) {
+        if (bitmap != null) {
+            releasePixels(bitmap.getAllocationByteCount());
+        }
+    }
+    //endregion
+
+    //region allocatePixels
+    /**
+     * Records pixel memory allocated by the worker outside of a bitmap, like the planes of a blur
+     * @param bytes Size of the memory
+     */
+    public void allocatePixels(long bytes) {
+        mPixelBytes += bytes;
+        mPeakBitmapBytes = Math.max(mPeakBitmapBytes, mPixelBytes);
+    }
+    //endregion
+
+    //region releasePixels
+    /**
+     * Records that memory recorded by {@link #allocatePixels(long)} is not used anymore
+     * @param bytes Size of the memory
+     */
+    public void releasePixels(long bytes) {
+        mPixelBytes = Math.max(0, mPixelBytes - bytes);
+    }
+    //endregion
+
+    //region getWorkerName
+    public String getWorkerName() { return mWorkerName; }
+    //endregion
+
+    //region toMap
+    /**
+     * @return Every metric, named worker.stage.wall_ms, worker.stage.cpu_ms, worker.bytes_read...
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> stage : mStages.entrySet()) {
+            String name = mWorkerName + "." + stage.getKey();
+            values.put(name + SUFFIX_WALL_MS, stage.getValue()[0] / 1000000);
+            values.put(name + SUFFIX_CPU_MS, stage.getValue()[1] / 1000000);
+        }
+        values.put(mWorkerName + "." + NAME_BYTES_READ, mBytesRead);
+        values.put(mWorkerName + "." + NAME_BYTES_WRITTEN, mBytesWritten);
+        values.put(mWorkerName + "." + NAME_PEAK_BITMAP_BYTES, mPeakBitmapBytes);
+        return Collections.unmodifiableMap(values);
+    }
+    //endregion
+
+    //region toData
+    /**
+     * @return Every metric, as KEY_PREFIX followed by the names of {@link #toMap()}
+     */
+    public Data toData() {
+        Data.Builder builder = new Data.Builder();
+        for (Map.Entry<String, Long> value : toMap().entrySet()) {
+            builder.putLong(KEY_PREFIX + value.getKey(), value.getValue());
+        }
+        return builder.build();
+    }
+    //endregion
+}
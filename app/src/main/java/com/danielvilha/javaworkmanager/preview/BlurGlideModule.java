@@ -0,0 +1,41 @@
+package com.danielvilha.javaworkmanager.preview;
+
+import android.app.ActivityManager;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.module.AppGlideModule;
+import com.danielvilha.javaworkmanager.Constants;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Glide's bitmap pool is shared with the workers, which decode and blur images much larger than
+ * the screen sized bitmaps the default pool is sized for.
+ */
+@GlideModule
+public final class BlurGlideModule extends AppGlideModule {
+
+    //region applyOptions
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        long maxBytes = Constants.BITMAP_POOL_MAX_BYTES;
+        if (activityManager != null && activityManager.isLowRamDevice()) {
+            maxBytes /= 2;
+        }
+        builder.setBitmapPool(new LruBitmapPool(maxBytes));
+    }
+    //endregion
+
+    //region isManifestParsingEnabled
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+    //endregion
+}
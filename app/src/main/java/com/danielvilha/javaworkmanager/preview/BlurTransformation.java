@@ -0,0 +1,117 @@
+package com.danielvilha.javaworkmanager.preview;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+import com.bumptech.glide.load.resource.bitmap.BitmapTransformation;
+import com.danielvilha.javaworkmanager.Constants;
+import com.danielvilha.javaworkmanager.imaging.BoxBlur;
+import com.danielvilha.javaworkmanager.imaging.Cancellation;
+import com.danielvilha.javaworkmanager.imaging.GaussianBlur;
+import com.danielvilha.javaworkmanager.imaging.PixelBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Glide transformation applying the blur of the workers to a thumbnail, so a preview of the
+ * result shows up before any work is enqueued. The radius is given in pixels of the original
+ * image and scaled down to the size of the thumbnail.
+ *
+ * The output bitmap comes from Glide's bitmap pool, and the key includes the radius, the source
+ * size and BLUR_ENGINE_VERSION so previews are served from Glide's disk cache.
+ */
+public class BlurTransformation extends BitmapTransformation {
+
+    //region Variables
+    private static final String ID = "com.danielvilha.javaworkmanager.preview.BlurTransformation";
+    private static final byte[] ID_BYTES = ID.getBytes(StandardCharsets.UTF_8);
+
+    private final ForkJoinPool mPool;
+    private final float mRadius;
+    private final int mSourceDimension;
+    //endregion
+
+    //region BlurTransformation
+    /**
+     * @param pool Pool the blur runs on
+     * @param radius Blur radius, in pixels of the original image
+     * @param sourceDimension Largest of the width and height of the original image
+     */
+    public BlurTransformation(@NonNull ForkJoinPool pool, float radius, int sourceDimension) {
+        mPool = pool;
+        mRadius = radius;
+        mSourceDimension = Math.max(1, sourceDimension);
+    }
+    //endregion
+
+    //region transform
+    @Override
+    protected Bitmap transform(@NonNull BitmapPool pool, @NonNull Bitmap toTransform, int outWidth, int outHeight) {
+        int width = toTransform.getWidth();
+        int height = toTransform.getHeight();
+
+        float scale = Math.min(1f, (float) Math.max(width, height) / mSourceDimension);
+        float radius = mRadius * scale;
+        if (radius <= 0f) {
+            return toTransform;
+        }
+
+        int[] argb = new int[width * height];
+        toTransform.getPixels(argb, 0, width, 0, 0, width, height);
+
+        PixelBuffer pixels = new PixelBuffer(width, height, !toTransform.hasAlpha());
+        pixels.copyFromArgb(argb, 0, width, 0, height);
+
+        // Same engine choice as the workers
+        if (radius > Constants.BOX_BLUR_MIN_RADIUS) {
+            BoxBlur.blur(pixels, pixels, radius, mPool, Cancellation.NONE);
+        } else {
+            GaussianBlur.blur(pixels, pixels, radius, mPool, Cancellation.NONE);
+        }
+        pixels.copyToArgb(0, height, argb, 0, width);
+
+        Bitmap.Config config = toTransform.getConfig() != null ? toTransform.getConfig() : Bitmap.Config.ARGB_8888;
+        Bitmap result = pool.get(width, height, config);
+        result.setHasAlpha(toTransform.hasAlpha());
+        result.setPixels(argb, 0, width, 0, 0, width, height);
+        return result;
+    }
+    //endregion
+
+    //region updateDiskCacheKey
+    @Override
+    public void updateDiskCacheKey(@NonNull MessageDigest messageDigest) {
+        messageDigest.update(ID_BYTES);
+        messageDigest.update(ByteBuffer.allocate(12)
+                .putFloat(mRadius)
+                .putInt(mSourceDimension)
+                .putInt(Constants.BLUR_ENGINE_VERSION)
+                .array());
+    }
+    //endregion
+
+    //region equals
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof BlurTransformation)) {
+            return false;
+        }
+        BlurTransformation other = (BlurTransformation) o;
+        return mRadius == other.mRadius && mSourceDimension == other.mSourceDimension;
+    }
+    //endregion
+
+    //region hashCode
+    @Override
+    public int hashCode() {
+        return ID.hashCode() * 31 * 31 + Float.floatToIntBits(mRadius) * 31 + mSourceDimension;
+    }
+    //endregion
+}
@@ -0,0 +1,85 @@
+package com.danielvilha.javaworkmanager.viewmodel;
+
+import androidx.annotation.NonNull;
+import androidx.work.WorkInfo;
+
+import com.danielvilha.javaworkmanager.Constants;
+
+import java.util.List;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Aggregated status of all the images of a batch
+ */
+public class BatchStatus {
+
+    //region Variables
+    private final int mTotal;
+    private final int mSaved;
+    private final int mFailed;
+    private final boolean mFinished;
+    //endregion
+
+    //region BatchStatus
+    private BatchStatus(int total, int saved, int failed, boolean finished) {
+        mTotal = total;
+        mSaved = saved;
+        mFailed = failed;
+        mFinished = finished;
+    }
+    //endregion
+
+    //region from
+    /**
+     * Builds the status from the WorkInfo of every work request tagged with the batch tag
+     * @param workInfos WorkInfo of the batch
+     * @return Status of the batch
+     */
+    static BatchStatus from(@NonNull List<WorkInfo> workInfos) {
+        int total = 0;
+        int saved = 0;
+        int failed = 0;
+        boolean finished = !workInfos.isEmpty();
+
+        for (WorkInfo workInfo : workInfos) {
+            boolean done = workInfo.getState().isFinished();
+            finished &= done;
+
+            // Each image has exactly one save step
+            if (!workInfo.getTags().contains(Constants.TAG_BATCH_OUTPUT)) {
+                continue;
+            }
+
+            total++;
+            if (workInfo.getState() == WorkInfo.State.SUCCEEDED
+                    && !workInfo.getOutputData().getBoolean(Constants.KEY_FAILED, false)) {
+                saved++;
+            } else if (done) {
+                failed++;
+            }
+        }
+
+        return new BatchStatus(total, saved, failed, finished);
+    }
+    //endregion
+
+    /**
+     * Getters
+     */
+    //region getTotal
+    public int getTotal() { return mTotal; }
+    //endregion
+
+    //region getSaved
+    public int getSaved() { return mSaved; }
+    //endregion
+
+    //region getFailed
+    public int getFailed() { return mFailed; }
+    //endregion
+
+    //region isFinished
+    public boolean isFinished() { return mFinished; }
+    //endregion
+}
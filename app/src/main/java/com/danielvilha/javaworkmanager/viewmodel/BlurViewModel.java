@@ -1,12 +1,18 @@
 package com.danielvilha.javaworkmanager.viewmodel;
 
 import android.app.Application;
+import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.text.TextUtils;
+import android.util.Log;
+import android.util.Size;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 import androidx.work.Constraints;
 import androidx.work.Data;
 import androidx.work.ExistingWorkPolicy;
@@ -15,14 +21,55 @@ import androidx.work.WorkContinuation;
 import androidx.work.WorkInfo;
 import androidx.work.WorkManager;
 
+import com.danielvilha.javaworkmanager.cache.IntermediateIndex;
+import com.danielvilha.javaworkmanager.cache.ResultCache;
+import com.danielvilha.javaworkmanager.imaging.GaussianBlur;
+import com.danielvilha.javaworkmanager.metrics.ChainMetrics;
+import com.danielvilha.javaworkmanager.workers.BatchCompleteWorker;
 import com.danielvilha.javaworkmanager.workers.BlurWorker;
 import com.danielvilha.javaworkmanager.workers.CleanupWorker;
+import com.danielvilha.javaworkmanager.workers.OutputSpec;
+import com.danielvilha.javaworkmanager.workers.OutputStore;
+import com.danielvilha.javaworkmanager.workers.OwnInputMerger;
 import com.danielvilha.javaworkmanager.workers.SaveImageToFileWorker;
+import com.danielvilha.javaworkmanager.workers.WorkExecutors;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.danielvilha.javaworkmanager.Constants.IMAGE_MANIPULATION_WORK_NAME;
+import static com.danielvilha.javaworkmanager.Constants.KEY_BATCH_TAG;
+import static com.danielvilha.javaworkmanager.Constants.BLUR_ENGINE_JAVA;
+import static com.danielvilha.javaworkmanager.Constants.BLUR_RADIUS;
+import static com.danielvilha.javaworkmanager.Constants.KEY_BLUR_ENGINE;
+import static com.danielvilha.javaworkmanager.Constants.KEY_BLUR_RADIUS;
+import static com.danielvilha.javaworkmanager.Constants.KEY_CACHE_KEY;
+import static com.danielvilha.javaworkmanager.Constants.KEY_IMAGE_SCALE;
 import static com.danielvilha.javaworkmanager.Constants.KEY_IMAGE_URI;
+import static com.danielvilha.javaworkmanager.Constants.KEY_PASS_COUNT;
+import static com.danielvilha.javaworkmanager.Constants.KEY_PASS_INDEX;
+import static com.danielvilha.javaworkmanager.Constants.KEY_PIXEL_QUALITY;
+import static com.danielvilha.javaworkmanager.Constants.KEY_POWER_POLICY;
+import static com.danielvilha.javaworkmanager.Constants.KEY_SOURCE_KEY;
+import static com.danielvilha.javaworkmanager.Constants.KEY_SOURCE_SIGMA;
+import static com.danielvilha.javaworkmanager.Constants.MAX_BATCH_CONCURRENCY;
+import static com.danielvilha.javaworkmanager.Constants.MAX_BLUR_CHAIN_PASSES;
+import static com.danielvilha.javaworkmanager.Constants.MAX_BLUR_RADIUS;
+import static com.danielvilha.javaworkmanager.Constants.OUTPUT_EVICTION_WORK_NAME;
+import static com.danielvilha.javaworkmanager.Constants.PIXEL_QUALITY_FULL;
+import static com.danielvilha.javaworkmanager.Constants.POWER_POLICY_ADAPTIVE;
+import static com.danielvilha.javaworkmanager.Constants.TAG_BATCH_OUTPUT;
+import static com.danielvilha.javaworkmanager.Constants.TAG_BATCH_PREFIX;
+import static com.danielvilha.javaworkmanager.Constants.TAG_CHAIN_PREFIX;
+import static com.danielvilha.javaworkmanager.Constants.TAG_IMAGE_MANIPULATION;
 import static com.danielvilha.javaworkmanager.Constants.TAG_OUTPUT;
 
 /**
@@ -31,10 +78,26 @@ import static com.danielvilha.javaworkmanager.Constants.TAG_OUTPUT;
 public class BlurViewModel extends AndroidViewModel {
 
     //region Variables
+    private static final String TAG = BlurViewModel.class.getSimpleName();
+
     private Uri mImageUri;
     private Uri mOutputUri;
     private WorkManager mWorkManager;
     private LiveData<List<WorkInfo>> mSavedWorkInfo;
+    private MutableLiveData<String> mBatchTag = new MutableLiveData<>();
+    private LiveData<BatchStatus> mBatchStatus;
+    private MutableLiveData<String> mChainTag = new MutableLiveData<>();
+    private LiveData<ChainMetrics> mChainMetrics;
+    private MutableLiveData<Uri> mCachedOutputUri = new MutableLiveData<>();
+    private MutableLiveData<Size> mImageSize = new MutableLiveData<>();
+    private boolean mFusedBlur = true;
+    private String mBlurEngine = BLUR_ENGINE_JAVA;
+    private String mPixelQuality = PIXEL_QUALITY_FULL;
+    private String mPowerPolicy = POWER_POLICY_ADAPTIVE;
+
+    // Handles the requests of applyBlur one at a time, in the order they were made
+    private final ExecutorService mRequestExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger mRequestCount = new AtomicInteger();
     //endregion
 
     //region BlurViewModel
@@ -43,36 +106,325 @@ public class BlurViewModel extends AndroidViewModel {
         mWorkManager = WorkManager.getInstance(application);
 
         // This transformation makes sure that whenever the current work Id changes the WorkInfo
-        // the UI is listening to changes
-        mSavedWorkInfo = mWorkManager.getWorkInfosByTagLiveData(TAG_OUTPUT);
+        // the UI is listening to changes. Only the save request of the last chain is followed, a
+        // replaced chain finishing late must not show its result.
+        mSavedWorkInfo = Transformations.switchMap(mChainTag, chainTag ->
+                Transformations.map(mWorkManager.getWorkInfosByTagLiveData(chainTag), BlurViewModel::outputWorkInfos));
+
+        // Follows the WorkInfo of the last batch
+        mBatchStatus = Transformations.switchMap(mBatchTag, batchTag ->
+                Transformations.map(mWorkManager.getWorkInfosByTagLiveData(batchTag), BatchStatus::from));
+
+        // Follows the metrics of the last chain
+        mChainMetrics = Transformations.switchMap(mChainTag, chainTag ->
+                Transformations.map(mWorkManager.getWorkInfosByTagLiveData(chainTag), ChainMetrics::from));
     }
     //endregion
 
     /**
-     * Create the WorkRequest to apply the blur and save the resulting image
-     * @param blurLevel The amount to blur the image
+     * Create the WorkRequest to apply the blur and save the resulting image. The ResultCache is
+     * checked first: an image already blurred and saved the same way is returned right away
+     * through {@link #getCachedOutputUri()}, one blurred but not saved anymore is only saved.
+     *
+     * A request identical to one still running follows the running chain instead of replacing it.
+     * Otherwise the blur starts from the strongest level of the image the IntermediateIndex holds
+     * below the requested one, and only blurs what is missing.
+     *
+     * Requests are handled one at a time, so a chain is only replaced by the chain of a later
+     * request. A request still waiting when a newer one is made is dropped.
+     * @param strength The amount to blur the image, from 0 to 1
+     * @param outputSpec Format the image is saved in
      */
     //region applyBlur
-    public void applyBlur(int blurLevel) {
-        // Add WorkRequest to Cleanup temporary images
-        WorkContinuation continuation = mWorkManager
-                .beginUniqueWork(IMAGE_MANIPULATION_WORK_NAME,
-                        ExistingWorkPolicy.REPLACE,
-                        OneTimeWorkRequest.from(CleanupWorker.class));
-
-        // Add WorkRequests to blur the image the number of times requested
-        for (int i = 0; i < blurLevel; i++) {
-            OneTimeWorkRequest.Builder blurBuilder =
-                    new OneTimeWorkRequest.Builder(BlurWorker.class);
-
-            // Input the Uri if this is the first blur operation
-            // After the first blur operation the input will be the output of previous
-            // blur operations.
-            if ( i == 0 ) {
-                blurBuilder.setInputData(createInputDataForUri());
+    public void applyBlur(float strength, @NonNull OutputSpec outputSpec) {
+        Uri imageUri = mImageUri;
+        boolean fusedBlur = mFusedBlur;
+        String blurEngine = mBlurEngine;
+        String pixelQuality = mPixelQuality;
+        String powerPolicy = mPowerPolicy;
+        int request = mRequestCount.incrementAndGet();
+
+        // Hashing reads the whole image, keep it off the main thread
+        mRequestExecutor.execute(() -> {
+            if (isSuperseded(request)) {
+                return;
+            }
+            float radius = radiusForStrength(strength);
+            String cacheKey = null;
+            String sourceKey = null;
+
+            if (imageUri != null) {
+                try {
+                    String contentHash = ResultCache.hashContent(getApplication().getContentResolver(), imageUri);
+                    cacheKey = ResultCache.keyFor(contentHash, strength, fusedBlur, pixelQuality, blurEngine,
+                            outputSpec);
+                    sourceKey = IntermediateIndex.sourceKey(contentHash, pixelQuality);
+                    ResultCache.Entry cached = ResultCache.getInstance(getApplication()).get(cacheKey);
+
+                    if (isSuperseded(request)) {
+                        return;
+                    }
+                    if (cached != null && cached.savedUri != null) {
+                        mCachedOutputUri.postValue(cached.savedUri);
+                        return;
+                    }
+                    if (joinRunningChain(cacheKey)) {
+                        return;
+                    }
+                    if (cached != null && cached.resultFile != null) {
+                        enqueueSave(newChainTag(), Uri.fromFile(cached.resultFile), cached.scale, outputSpec,
+                                cacheKey);
+                        return;
+                    }
+                } catch (IOException exception) {
+                    // Blur it anyway, just without caching the result
+                    Log.w(TAG, "Unable to compute the cache key of " + imageUri, exception);
+                }
+            }
+
+            String chainTag = newChainTag();
+            Data source = createInputDataForUri(imageUri);
+            float remainingRadius = radius;
+
+            IntermediateIndex.Level level = sourceKey == null ? null
+                    : IntermediateIndex.getInstance(getApplication()).findDeepest(sourceKey,
+                            GaussianBlur.sigmaForRadius(radius));
+            File levelFile = null;
+            if (level != null) {
+                // The level is named after the chain that produced it, which is usually finished
+                // and no longer keeps it from being evicted
+                try {
+                    levelFile = OutputStore.link(getApplication(), level.file, chainTag);
+                } catch (IOException exception) {
+                    Log.w(TAG, "Unable to take the level " + level.file + ", blurring from the image", exception);
+                }
+            }
+            if (levelFile != null) {
+                // Variances add up, blur the level by what separates it from the requested blur
+                float targetSigma = GaussianBlur.sigmaForRadius(radius);
+                float remainingSigma = (float) Math.sqrt(targetSigma * targetSigma - level.sigma * level.sigma);
+                remainingRadius = GaussianBlur.radiusForSigma(remainingSigma);
+                Uri levelUri = Uri.fromFile(levelFile);
+
+                if (remainingRadius <= 0f) {
+                    // Less than a pixel away, the level is the result
+                    enqueueSave(chainTag, levelUri, level.scale, outputSpec, cacheKey);
+                    return;
+                }
+
+                source = new Data.Builder()
+                        .putString(KEY_IMAGE_URI, levelUri.toString())
+                        .putFloat(KEY_IMAGE_SCALE, level.scale)
+                        .putFloat(KEY_SOURCE_SIGMA, level.sigma)
+                        .build();
+            }
+
+            enqueueBlur(chainTag, source, remainingRadius, fusedBlur, blurEngine, pixelQuality, powerPolicy,
+                    outputSpec, cacheKey, sourceKey);
+        });
+    }
+    //endregion
+
+    /**
+     * @param request Number applyBlur gave the request
+     * @return True if applyBlur was called again since, the newer request then wins
+     */
+    //region isSuperseded
+    private boolean isSuperseded(int request) {
+        return request != mRequestCount.get();
+    }
+    //endregion
+
+    //region newChainTag
+    /**
+     * @return A new tag, shared by all the requests of a chain so they share a status notification
+     */
+    private static String newChainTag() {
+        return TAG_CHAIN_PREFIX + UUID.randomUUID().toString();
+    }
+    //endregion
+
+    /**
+     * Enqueues the chain blurring the image and saving the result
+     * @param chainTag Tag of the chain
+     * @param source Input of the first pass: the image, and for a blur level its scale and sigma
+     * @param radius Radius of the blur, in pixels of the original image
+     * @param fusedBlur True to apply the whole blur in a single BlurWorker
+     * @param blurEngine One of the BLUR_ENGINE constants
+     * @param pixelQuality One of the PIXEL_QUALITY constants
+     * @param powerPolicy One of the POWER_POLICY constants
+     * @param outputSpec Format the image is saved in
+     * @param cacheKey Key the result is cached under, or null
+     * @param sourceKey Key the passes record their output under in the IntermediateIndex, or null
+     */
+    //region enqueueBlur
+    private void enqueueBlur(String chainTag, Data source, float radius, boolean fusedBlur, String blurEngine,
+                             String pixelQuality, String powerPolicy, OutputSpec outputSpec, String cacheKey,
+                             String sourceKey) {
+        String workName = uniqueWorkName(cacheKey);
+
+        // The chain starts blurring right away, old files are evicted later when the device is idle
+        WorkContinuation continuation = null;
+
+        if (fusedBlur) {
+            // A single BlurWorker applies the whole blur at once
+            Data.Builder inputData = new Data.Builder()
+                    .putAll(source)
+                    .putFloat(KEY_BLUR_RADIUS, radius)
+                    .putString(KEY_BLUR_ENGINE, blurEngine)
+                    .putString(KEY_PIXEL_QUALITY, pixelQuality)
+                    .putString(KEY_POWER_POLICY, powerPolicy);
+            if (sourceKey != null) {
+                inputData.putString(KEY_SOURCE_KEY, sourceKey);
             }
 
-            continuation = continuation.then(blurBuilder.build());
+            continuation = then(continuation, workName, new OneTimeWorkRequest.Builder(BlurWorker.class)
+                    .setInputData(inputData.build())
+                    .addTag(TAG_IMAGE_MANIPULATION)
+                    .addTag(chainTag)
+                    .build());
+        } else {
+            // Split the blur in passes of about BLUR_RADIUS, the passes add up to the same blur
+            int passCount = chainPasses(radius);
+            float passRadius = GaussianBlur.splitRadius(radius, passCount);
+
+            // Add WorkRequests to blur the image once per pass
+            for (int i = 0; i < passCount; i++) {
+                OneTimeWorkRequest.Builder blurBuilder =
+                        new OneTimeWorkRequest.Builder(BlurWorker.class);
+
+                Data.Builder inputData = new Data.Builder()
+                        .putInt(KEY_PASS_INDEX, i + 1)
+                        .putInt(KEY_PASS_COUNT, passCount)
+                        .putFloat(KEY_BLUR_RADIUS, passRadius)
+                        .putString(KEY_BLUR_ENGINE, blurEngine)
+                        .putString(KEY_PIXEL_QUALITY, pixelQuality)
+                        .putString(KEY_POWER_POLICY, powerPolicy);
+                if (sourceKey != null) {
+                    inputData.putString(KEY_SOURCE_KEY, sourceKey);
+                }
+
+                // Input the Uri if this is the first blur operation
+                // After the first blur operation the input will be the output of previous
+                // blur operations.
+                if ( i == 0 ) {
+                    inputData.putAll(source);
+                }
+
+                blurBuilder.setInputData(inputData.build())
+                        .addTag(TAG_IMAGE_MANIPULATION)
+                        .addTag(chainTag);
+                continuation = then(continuation, workName, blurBuilder.build());
+            }
+        }
+
+        continuation = then(continuation, workName,
+                createSaveRequest(chainTag, new Data.Builder(), outputSpec, cacheKey));
+
+        // Actually start the work
+        continuation.enqueue();
+        scheduleEviction();
+
+        mChainTag.postValue(chainTag);
+    }
+    //endregion
+
+    /**
+     * Enqueues a chain only saving an image blurred earlier
+     * @param chainTag Tag of the chain
+     * @param resultUri Blurred image
+     * @param scale Size of the blurred image divided by the size of its source
+     * @param outputSpec Format the image is saved in
+     * @param cacheKey Key the result is cached under
+     */
+    //region enqueueSave
+    private void enqueueSave(String chainTag, Uri resultUri, float scale, OutputSpec outputSpec, String cacheKey) {
+        Data.Builder inputData = new Data.Builder()
+                .putString(KEY_IMAGE_URI, resultUri.toString())
+                .putFloat(KEY_IMAGE_SCALE, scale);
+
+        then(null, uniqueWorkName(cacheKey), createSaveRequest(chainTag, inputData, outputSpec, cacheKey)).enqueue();
+
+        mChainTag.postValue(chainTag);
+    }
+    //endregion
+
+    /**
+     * Follows the chain already producing the result of the key, if one is still running
+     * @param cacheKey Key the result is cached under
+     * @return True if a chain is running for the key, its tag is then published to the metrics
+     */
+    //region joinRunningChain
+    @WorkerThread
+    private boolean joinRunningChain(String cacheKey) {
+        List<WorkInfo> workInfos;
+        try {
+            workInfos = mWorkManager.getWorkInfosForUniqueWork(uniqueWorkName(cacheKey)).get();
+        } catch (ExecutionException exception) {
+            Log.w(TAG, "Unable to look up the work of " + cacheKey, exception);
+            return false;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        for (WorkInfo workInfo : workInfos) {
+            if (workInfo.getState().isFinished()) {
+                continue;
+            }
+            for (String tag : workInfo.getTags()) {
+                if (tag.startsWith(TAG_CHAIN_PREFIX)) {
+                    mChainTag.postValue(tag);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    //endregion
+
+    //region outputWorkInfos
+    /**
+     * @param workInfos WorkInfo of every request of a chain
+     * @return WorkInfo of the request saving the image, at most one
+     */
+    private static List<WorkInfo> outputWorkInfos(List<WorkInfo> workInfos) {
+        List<WorkInfo> outputs = new ArrayList<>(1);
+        if (workInfos != null) {
+            for (WorkInfo workInfo : workInfos) {
+                if (workInfo.getTags().contains(TAG_OUTPUT)) {
+                    outputs.add(workInfo);
+                }
+            }
+        }
+        return outputs;
+    }
+    //endregion
+
+    //region uniqueWorkName
+    /**
+     * @param cacheKey Key the result is cached under, or null
+     * @return Unique name of the chain producing the result of the key
+     */
+    private static String uniqueWorkName(String cacheKey) {
+        return cacheKey == null ? IMAGE_MANIPULATION_WORK_NAME : IMAGE_MANIPULATION_WORK_NAME + "_" + cacheKey;
+    }
+    //endregion
+
+    /**
+     * Creates the WorkRequest saving the blurred image to the filesystem
+     * @param chainTag Tag of the chain
+     * @param inputData Input of the request, besides the output of the previous one
+     * @param outputSpec Format the image is saved in
+     * @param cacheKey Key the result is cached under, or null
+     * @return The request
+     */
+    //region createSaveRequest
+    private OneTimeWorkRequest createSaveRequest(String chainTag, Data.Builder inputData, OutputSpec outputSpec,
+                                                 String cacheKey) {
+        inputData.putAll(outputSpec.toData());
+        if (cacheKey != null) {
+            inputData.putString(KEY_CACHE_KEY, cacheKey);
         }
 
         // Create charging constraint
@@ -80,16 +432,164 @@ public class BlurViewModel extends AndroidViewModel {
                 .setRequiresCharging(true)
                 .build();
 
-        // Add WorkRequest to save the image to the filesystem
-        OneTimeWorkRequest save = new OneTimeWorkRequest.Builder(SaveImageToFileWorker.class)
+        return new OneTimeWorkRequest.Builder(SaveImageToFileWorker.class)
+                .setInputData(inputData.build())
                 .setConstraints(constraints) // This adds the Constraints
+                .addTag(TAG_IMAGE_MANIPULATION)
                 .addTag(TAG_OUTPUT)
+                .addTag(chainTag)
                 .build();
+    }
+    //endregion
 
-        continuation = continuation.then(save);
+    /**
+     * Appends the request to the chain, starting the unique chain with it if there is none yet. A
+     * new chain stops the one of any other request, like a new blur level replacing the previous.
+     * @param continuation Chain built so far or null
+     * @param workName Unique name of the chain
+     * @param request Request to append
+     * @return The chain ending with the request
+     */
+    //region then
+    private WorkContinuation then(WorkContinuation continuation, String workName, OneTimeWorkRequest request) {
+        if (continuation == null) {
+            mWorkManager.cancelAllWorkByTag(TAG_IMAGE_MANIPULATION);
+            return mWorkManager.beginUniqueWork(workName, ExistingWorkPolicy.REPLACE, request);
+        }
+        return continuation.then(request);
+    }
+    //endregion
 
-        // Actually start the work
-        continuation.enqueue();
+    /**
+     * Schedules the eviction of old output files for the next time the device is idle, unless it
+     * is scheduled already
+     */
+    //region scheduleEviction
+    private void scheduleEviction() {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresDeviceIdle(true)
+                .build();
+
+        OneTimeWorkRequest eviction = new OneTimeWorkRequest.Builder(CleanupWorker.class)
+                .setConstraints(constraints)
+                .build();
+
+        mWorkManager.enqueueUniqueWork(OUTPUT_EVICTION_WORK_NAME, ExistingWorkPolicy.KEEP, eviction);
+    }
+    //endregion
+
+    /**
+     * Blurs and saves every image of the list. Each image gets its own chain, at most
+     * MAX_BATCH_CONCURRENCY of them run at the same time, and a last step runs once all of them
+     * are done. Progress is reported through {@link #getBatchStatus()}.
+     * @param imageUris Images to blur
+     * @param strength The amount to blur the images, from 0 to 1
+     * @param outputSpec Format the images are saved in
+     */
+    //region applyBlurBatch
+    public void applyBlurBatch(@NonNull List<Uri> imageUris, float strength, @NonNull OutputSpec outputSpec) {
+        if (imageUris.isEmpty()) {
+            return;
+        }
+
+        String batchTag = TAG_BATCH_PREFIX + UUID.randomUUID().toString();
+
+        // Images are spread over lanes, each lane processing its images one after the other
+        int laneCount = Math.min(MAX_BATCH_CONCURRENCY, imageUris.size());
+        List<WorkContinuation> lanes = new ArrayList<>(laneCount);
+
+        for (int i = 0; i < imageUris.size(); i++) {
+            Data blurInput = new Data.Builder()
+                    .putString(KEY_IMAGE_URI, imageUris.get(i).toString())
+                    .putFloat(KEY_BLUR_RADIUS, radiusForStrength(strength))
+                    .putString(KEY_BATCH_TAG, batchTag)
+                    .putString(KEY_BLUR_ENGINE, mBlurEngine)
+                    .putString(KEY_PIXEL_QUALITY, mPixelQuality)
+                    .putString(KEY_POWER_POLICY, mPowerPolicy)
+                    .build();
+
+            // The previous image of the lane has nothing to hand over to this one
+            OneTimeWorkRequest blur = new OneTimeWorkRequest.Builder(BlurWorker.class)
+                    .setInputData(blurInput)
+                    .setInputMerger(OwnInputMerger.class)
+                    .addTag(batchTag)
+                    .build();
+
+            OneTimeWorkRequest save = new OneTimeWorkRequest.Builder(SaveImageToFileWorker.class)
+                    .setInputData(new Data.Builder()
+                            .putString(KEY_BATCH_TAG, batchTag)
+                            .putAll(outputSpec.toData())
+                            .build())
+                    .addTag(batchTag)
+                    .addTag(TAG_BATCH_OUTPUT)
+                    .build();
+
+            int lane = i % laneCount;
+            if (lanes.size() <= lane) {
+                lanes.add(mWorkManager.beginWith(blur).then(save));
+            } else {
+                lanes.set(lane, lanes.get(lane).then(blur).then(save));
+            }
+        }
+
+        OneTimeWorkRequest complete = new OneTimeWorkRequest.Builder(BatchCompleteWorker.class)
+                .setInputData(new Data.Builder().putString(KEY_BATCH_TAG, batchTag).build())
+                .addTag(batchTag)
+                .build();
+
+        WorkContinuation.combine(lanes)
+                .then(complete)
+                .enqueue();
+        scheduleEviction();
+
+        mBatchTag.setValue(batchTag);
+    }
+    //endregion
+
+    //region radiusForStrength
+    /**
+     * @param strength Blur strength, from 0 to 1
+     * @return Radius of the blur, in pixels of the original image
+     */
+    private static float radiusForStrength(float strength) {
+        return Math.max(0f, Math.min(1f, strength)) * MAX_BLUR_RADIUS;
+    }
+    //endregion
+
+    //region chainPasses
+    /**
+     * @param radius Radius of the whole blur
+     * @return Number of BlurWorkers a non fused chain splits the blur in
+     */
+    private static int chainPasses(float radius) {
+        float ratio = GaussianBlur.sigmaForRadius(radius) / GaussianBlur.sigmaForRadius(BLUR_RADIUS);
+        return Math.max(1, Math.min(MAX_BLUR_CHAIN_PASSES, Math.round(ratio * ratio)));
+    }
+    //endregion
+
+    //region loadImageSize
+    /**
+     * Reads the size of the image in the background and publishes it through {@link #getImageSize()}
+     */
+    private void loadImageSize(Uri imageUri) {
+        if (imageUri == null) {
+            return;
+        }
+
+        WorkExecutors.getInstance(getApplication()).io().execute(() -> {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            try (InputStream in = getApplication().getContentResolver().openInputStream(imageUri)) {
+                BitmapFactory.decodeStream(in, null, options);
+            } catch (IOException | SecurityException exception) {
+                Log.w(TAG, "Unable to read the size of " + imageUri, exception);
+                return;
+            }
+
+            if (options.outWidth > 0 && options.outHeight > 0) {
+                mImageSize.postValue(new Size(options.outWidth, options.outHeight));
+            }
+        });
     }
     //endregion
 
@@ -104,13 +604,14 @@ public class BlurViewModel extends AndroidViewModel {
 
     /**
      * Creates the input data bundle which includes the Uri to operate on
+     * @param imageUri Uri of the image or null
      * @return Data which contains the Image Uri as a String
      */
     //region createInputDataForUri
-    private Data createInputDataForUri() {
+    private Data createInputDataForUri(Uri imageUri) {
         Data.Builder builder = new Data.Builder();
-        if (mImageUri != null) {
-            builder.putString(KEY_IMAGE_URI, mImageUri.toString());
+        if (imageUri != null) {
+            builder.putString(KEY_IMAGE_URI, imageUri.toString());
         }
         return builder.build();
     }
@@ -122,6 +623,53 @@ public class BlurViewModel extends AndroidViewModel {
     //region setImageUri
     public void setImageUri(String uri) {
         mImageUri = uriOrNull(uri);
+        loadImageSize(mImageUri);
+    }
+    //endregion
+
+    /**
+     * Choose between one fused BlurWorker and a chain of BlurWorkers of about BLUR_RADIUS each
+     * @param fusedBlur True to apply the whole blur in a single BlurWorker
+     */
+    //region setFusedBlur
+    public void setFusedBlur(boolean fusedBlur) {
+        mFusedBlur = fusedBlur;
+    }
+    //endregion
+
+    /**
+     * Choose the engine of the next requests. BLUR_ENGINE_RENDERSCRIPT blurs with the deprecated
+     * ScriptIntrinsicBlur, clamped to MAX_RENDERSCRIPT_RADIUS, and is kept to compare against.
+     * Images too large to hold in memory are always blurred by the Java engine.
+     * @param blurEngine One of the BLUR_ENGINE constants
+     */
+    //region setBlurEngine
+    public void setBlurEngine(@NonNull String blurEngine) {
+        mBlurEngine = blurEngine;
+    }
+    //endregion
+
+    /**
+     * Choose the pixel quality of the next requests. At PIXEL_QUALITY_REDUCED opaque images are
+     * decoded, blurred and handed between workers as RGB_565, half the bytes of ARGB_8888.
+     * @param pixelQuality One of the PIXEL_QUALITY constants
+     */
+    //region setPixelQuality
+    public void setPixelQuality(@NonNull String pixelQuality) {
+        mPixelQuality = pixelQuality;
+    }
+    //endregion
+
+    /**
+     * Choose how the next requests trade quality for power. Under POWER_POLICY_ADAPTIVE the blur
+     * gets cheaper and slightly approximate once the device throttles, saves power or runs low
+     * on battery; POWER_POLICY_QUALITY never trades quality and POWER_POLICY_SAVER always does.
+     * Results of a cheaper blur are not cached.
+     * @param powerPolicy One of the POWER_POLICY constants
+     */
+    //region setPowerPolicy
+    public void setPowerPolicy(@NonNull String powerPolicy) {
+        mPowerPolicy = powerPolicy;
     }
     //endregion
 
@@ -134,7 +682,43 @@ public class BlurViewModel extends AndroidViewModel {
     }
     //endregion
 
+    //region getImageSize
+    /**
+     * @return Size of the image, once it has been read
+     */
+    public LiveData<Size> getImageSize() { return mImageSize; }
+    //endregion
+
+    //region getBlurRadius
+    /**
+     * @param strength Blur strength, from 0 to 1
+     * @return Radius {@link #applyBlur(float, OutputSpec)} blurs with, in pixels of the original image
+     */
+    public float getBlurRadius(float strength) { return radiusForStrength(strength); }
+    //endregion
+
+    //region getBatchStatus
+    public LiveData<BatchStatus> getBatchStatus() { return mBatchStatus; }
+    //endregion
+
+    //region getChainMetrics
+    /**
+     * @return Per stage timings and memory figures of the last chain started by {@link #applyBlur(float, OutputSpec)}
+     */
+    public LiveData<ChainMetrics> getChainMetrics() { return mChainMetrics; }
+    //endregion
+
+    //region getCachedOutputUri
+    /**
+     * @return Saved image of a blur request answered by the ResultCache, without running any work
+     */
+    public LiveData<Uri> getCachedOutputUri() { return mCachedOutputUri; }
+    //endregion
+
     //region getOutputWorkInfo
+    /**
+     * @return WorkInfo of the request saving the result of the last chain
+     */
     public LiveData<List<WorkInfo>> getOutputWorkInfo() { return mSavedWorkInfo; }
     //endregion
 
@@ -150,11 +734,32 @@ public class BlurViewModel extends AndroidViewModel {
     //endregion
 
     /**
-     * Cancel work using the work's unique name
+     * Cancel every image of the current batch
+     */
+    //region cancelBatch
+    public void cancelBatch() {
+        String batchTag = mBatchTag.getValue();
+        if (batchTag != null) {
+            mWorkManager.cancelAllWorkByTag(batchTag);
+        }
+    }
+    //endregion
+
+    /**
+     * Cancel the blur chain, whatever the unique name of its request
      */
     //region cancelWork
     public void cancelWork() {
-        mWorkManager.cancelUniqueWork(IMAGE_MANIPULATION_WORK_NAME);
+        // A request still hashing must not start its chain after this
+        mRequestCount.incrementAndGet();
+        mWorkManager.cancelAllWorkByTag(TAG_IMAGE_MANIPULATION);
+    }
+    //endregion
+
+    //region onCleared
+    @Override
+    protected void onCleared() {
+        mRequestExecutor.shutdown();
     }
     //endregion
 }
@@ -0,0 +1,82 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.WorkerParameters;
+
+import com.danielvilha.javaworkmanager.Constants;
+
+import java.util.List;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Last step of a batch, runs once every image of the batch went through its chain and reports
+ * how many of them were saved.
+ */
+public class BatchCompleteWorker extends ExecutorWorker {
+
+    //region Variables
+    private static final String TAG = BatchCompleteWorker.class.getSimpleName();
+    //endregion
+
+    //region BatchCompleteWorker
+    public BatchCompleteWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+    //endregion
+
+    //region doWork
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context applicationContext = getApplicationContext();
+        String batchTag = getInputData().getString(Constants.KEY_BATCH_TAG);
+
+        try {
+            if (TextUtils.isEmpty(batchTag)) {
+                throw new IllegalArgumentException("Invalid batch tag");
+            }
+
+            // Count the results of the save step of every image in the batch
+            List<WorkInfo> workInfos = WorkManager.getInstance(applicationContext)
+                    .getWorkInfosByTag(batchTag)
+                    .get();
+
+            int saved = 0;
+            int failed = 0;
+            for (WorkInfo workInfo : workInfos) {
+                if (!workInfo.getTags().contains(Constants.TAG_BATCH_OUTPUT)) {
+                    continue;
+                }
+
+                if (workInfo.getState() == WorkInfo.State.SUCCEEDED
+                        && !workInfo.getOutputData().getBoolean(Constants.KEY_FAILED, false)) {
+                    saved++;
+                } else {
+                    failed++;
+                }
+            }
+
+            WorkerUtils.reportProgress(this,
+                    String.format("Batch done, %s saved, %s failed", saved, failed), 0, 0, 100);
+
+            Data outputData = new Data.Builder()
+                    .putInt(Constants.KEY_BATCH_SAVED, saved)
+                    .putInt(Constants.KEY_BATCH_FAILED, failed)
+                    .build();
+
+            return Result.success(outputData);
+        } catch (Exception exception) {
+            Log.e(TAG, "Error completing batch", exception);
+            return Result.failure();
+        }
+    }
+    //endregion
+}
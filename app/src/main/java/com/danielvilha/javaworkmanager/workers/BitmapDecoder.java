@@ -0,0 +1,293 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.ImageDecoder;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Size;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.danielvilha.javaworkmanager.Constants;
+import com.danielvilha.javaworkmanager.imaging.GaussianBlur;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Decode stage shared by the workers. Images are decoded straight to the size they are going to
+ * be processed at: never larger than the output resolution, and smaller when a heavy blur is
+ * about to remove the detail anyway. How much smaller depends on the ExecutionMode.
+ *
+ * At reduced precision opaque images are decoded as RGB_565, which halves the bytes every later
+ * stage reads and writes.
+ *
+ * Below API 28 decodes reuse a bitmap of the SharedBitmapPool through inBitmap. ImageDecoder has
+ * no way to decode into an existing bitmap.
+ */
+final class BitmapDecoder {
+
+    //region Variables
+    private static final String MIME_TYPE_JPEG = "image/jpeg";
+    //endregion
+
+    //region DecodedBitmap
+    /**
+     * Decoded bitmap along with the scale it was decoded at
+     */
+    static final class DecodedBitmap {
+        final Bitmap bitmap;
+        // Decoded size divided by the size of the encoded image
+        final float scale;
+        // Size of the encoded image, 0 when the bitmap came from memory and -1 if unknown
+        final long bytesRead;
+        // False when the bitmap is shared with the IntermediateStore
+        private final boolean decoded;
+
+        DecodedBitmap(Bitmap bitmap, float scale, long bytesRead, boolean decoded) {
+            this.bitmap = bitmap;
+            this.scale = scale;
+            this.bytesRead = bytesRead;
+            this.decoded = decoded;
+        }
+
+        /**
+         * @return True if the bitmap was decoded, false if it is shared with the IntermediateStore
+         */
+        boolean isDecoded() {
+            return decoded;
+        }
+    }
+    //endregion
+
+    //region decode
+    /**
+     * Decodes the image behind the Uri, taking it from the IntermediateStore when it was produced
+     * by a previous worker in this process
+     * @param applicationContext Application context
+     * @param uri Uri of the image
+     * @param blurRadius Radius, in pixels of the encoded image, of the blur applied next or 0
+     * @param reducedPrecision True to decode opaque images as RGB_565
+     * @param mode Mode the blur applied next runs in
+     * @return Decoded bitmap and its scale
+     * @throws IOException Throws if the image cannot be read
+     */
+    @WorkerThread
+    static DecodedBitmap decode(@NonNull Context applicationContext, @NonNull Uri uri, float blurRadius,
+                                boolean reducedPrecision, @NonNull ExecutionMode mode) throws IOException {
+        OutputStore.touch(uri);
+
+        IntermediateStore store = IntermediateStore.getInstance();
+        Bitmap stored = store.get(uri);
+        if (stored != null) {
+            return new DecodedBitmap(stored, 1f, 0, false);
+        }
+
+        // Not in memory anymore, make sure the file is complete before decoding it
+        store.awaitWrite(uri);
+
+        // Raw intermediates are already at the size they are processed at
+        if (RawBitmapCodec.isRawImage(uri)) {
+            File file = new File(uri.getPath());
+            return new DecodedBitmap(RawBitmapCodec.read(file, SharedBitmapPool.getInstance(applicationContext)),
+                    1f, file.length(), true);
+        }
+
+        ContentResolver resolver = applicationContext.getContentResolver();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return decodeWithImageDecoder(resolver, uri, blurRadius, reducedPrecision, mode);
+        }
+        return decodeWithBitmapFactory(resolver, uri, blurRadius, reducedPrecision, mode,
+                SharedBitmapPool.getInstance(applicationContext));
+    }
+    //endregion
+
+    //region targetScale
+    /**
+     * Scale the image can be decoded at without losing visible quality
+     * @param width Width of the encoded image
+     * @param height Height of the encoded image
+     * @param blurRadius Radius of the blur applied next or 0
+     * @param mode Mode the blur applied next runs in
+     * @return Scale in (0, 1]
+     */
+    static float targetScale(int width, int height, float blurRadius, @NonNull ExecutionMode mode) {
+        float scale = Math.min(1f, (float) Constants.MAX_DECODE_DIMENSION / Math.max(width, height));
+
+        if (blurRadius > 0) {
+            // After the blur only details larger than sigma are left, so there is no point in
+            // keeping more than minBlurSigma pixels for each sigma
+            float sigma = GaussianBlur.sigmaForRadius(blurRadius);
+            float blurScale = Math.max(mode.minBlurSigma / sigma, 1f / mode.maxBlurDownscale);
+            scale = Math.min(scale, blurScale);
+        }
+
+        return scale;
+    }
+    //endregion
+
+    //region sampleSize
+    /**
+     * @param scale Target scale
+     * @return Largest power of two sample size that keeps the image at or above the target scale
+     */
+    static int sampleSize(float scale) {
+        int sampleSize = 1;
+        while (scale * sampleSize * 2 <= 1f) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+    //endregion
+
+    //region readSize
+    /**
+     * Reads the size of the encoded image without decoding its pixels
+     * @param resolver Content resolver
+     * @param uri Uri of the image
+     * @return Width and height of the image
+     * @throws IOException Throws if the image cannot be read
+     */
+    @WorkerThread
+    static Size readSize(@NonNull ContentResolver resolver, @NonNull Uri uri) throws IOException {
+        BitmapFactory.Options options = readBounds(resolver, uri);
+        return new Size(options.outWidth, options.outHeight);
+    }
+    //endregion
+
+    //region readBounds
+    /**
+     * Reads the size and mime type of the encoded image without decoding its pixels
+     * @param resolver Content resolver
+     * @param uri Uri of the image
+     * @return Options holding the size and mime type of the image
+     * @throws IOException Throws if the image cannot be read
+     */
+    @WorkerThread
+    static BitmapFactory.Options readBounds(@NonNull ContentResolver resolver, @NonNull Uri uri) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Unable to read the bounds of " + uri);
+        }
+        return options;
+    }
+    //endregion
+
+    //region isOpaqueFormat
+    /**
+     * @param bounds Options returned by {@link #readBounds(ContentResolver, Uri)}
+     * @return True if the encoded format can't hold transparent pixels
+     */
+    static boolean isOpaqueFormat(@NonNull BitmapFactory.Options bounds) {
+        return MIME_TYPE_JPEG.equals(bounds.outMimeType);
+    }
+    //endregion
+
+    //region decodeWithImageDecoder
+    @WorkerThread
+    private static DecodedBitmap decodeWithImageDecoder(ContentResolver resolver, Uri uri, float blurRadius,
+                                                        boolean reducedPrecision, ExecutionMode mode)
+            throws IOException {
+        float[] scale = { 1f };
+        ImageDecoder.Source source = ImageDecoder.createSource(resolver, uri);
+
+        Bitmap bitmap = ImageDecoder.decodeBitmap(source, (decoder, info, src) -> {
+            Size size = info.getSize();
+            scale[0] = targetScale(size.getWidth(), size.getHeight(), blurRadius, mode);
+
+            if (scale[0] < 1f) {
+                decoder.setTargetSize(
+                        Math.max(1, Math.round(size.getWidth() * scale[0])),
+                        Math.max(1, Math.round(size.getHeight() * scale[0])));
+            }
+
+            // The blur reads the pixels back, which hardware bitmaps don't allow
+            decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+
+            if (reducedPrecision) {
+                // Makes the decoder pick RGB_565 when the image is opaque
+                decoder.setMemorySizePolicy(ImageDecoder.MEMORY_POLICY_LOW_RAM);
+            }
+        });
+
+        return new DecodedBitmap(bitmap, scale[0], contentLength(resolver, uri), true);
+    }
+    //endregion
+
+    //region decodeWithBitmapFactory
+    @WorkerThread
+    private static DecodedBitmap decodeWithBitmapFactory(ContentResolver resolver, Uri uri, float blurRadius,
+                                                         boolean reducedPrecision, ExecutionMode mode,
+                                                         SharedBitmapPool pool)
+            throws IOException {
+        // Read the bounds first
+        BitmapFactory.Options bounds = readBounds(resolver, uri);
+        int width = bounds.outWidth;
+        int height = bounds.outHeight;
+
+        int sampleSize = sampleSize(targetScale(width, height, blurRadius, mode));
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        if (reducedPrecision && isOpaqueFormat(bounds)) {
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+        }
+
+        // Decode into a pooled bitmap of the exact sampled size
+        options.inMutable = true;
+        options.inBitmap = pool.getDirty(
+                (width + sampleSize - 1) / sampleSize,
+                (height + sampleSize - 1) / sampleSize,
+                options.inPreferredConfig);
+
+        Bitmap bitmap;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        } catch (IllegalArgumentException exception) {
+            // The decoder rounded the size differently, decode into a new bitmap
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            try (InputStream in = resolver.openInputStream(uri)) {
+                bitmap = BitmapFactory.decodeStream(in, null, options);
+            }
+        }
+
+        if (bitmap == null) {
+            pool.put(options.inBitmap);
+            throw new IOException("Unable to decode " + uri);
+        }
+        return new DecodedBitmap(bitmap, (float) bitmap.getWidth() / width, contentLength(resolver, uri),
+                true);
+    }
+    //endregion
+
+    //region contentLength
+    /**
+     * @return Size in bytes of the content behind the Uri, or -1 if unknown
+     */
+    private static long contentLength(ContentResolver resolver, Uri uri) {
+        try (AssetFileDescriptor descriptor = resolver.openAssetFileDescriptor(uri, "r")) {
+            return descriptor == null ? -1 : descriptor.getLength();
+        } catch (IOException | SecurityException exception) {
+            return -1;
+        }
+    }
+    //endregion
+
+    //region BitmapDecoder
+    private BitmapDecoder() { }
+    //endregion
+}
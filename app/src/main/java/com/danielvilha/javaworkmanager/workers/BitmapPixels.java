@@ -0,0 +1,75 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.danielvilha.javaworkmanager.imaging.PixelBuffer;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Conversions between Bitmaps and the {@link PixelBuffer} the kernels work on. Pixels go through
+ * a block of rows at a time, so a conversion never holds a second full size copy of the image.
+ */
+final class BitmapPixels {
+
+    //region Variables
+    // Pixels converted at a time
+    private static final int BLOCK_PIXELS = 64 * 1024;
+    //endregion
+
+    //region read
+    /**
+     * Copies the pixels of the bitmap into a buffer. Opaque bitmaps get a buffer without alpha.
+     * @param bitmap Bitmap to read
+     * @param reuse Buffer reused when it is large enough, or null
+     * @return Buffer holding the pixels of the bitmap
+     */
+    static PixelBuffer read(@NonNull Bitmap bitmap, @Nullable PixelBuffer reuse) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        PixelBuffer buffer = PixelBuffer.obtain(reuse, width, height, !bitmap.hasAlpha());
+
+        int blockRows = Math.max(1, BLOCK_PIXELS / width);
+        int[] block = new int[Math.min(blockRows, height) * width];
+        for (int y = 0; y < height; y += blockRows) {
+            int rows = Math.min(blockRows, height - y);
+            bitmap.getPixels(block, 0, width, 0, y, width, rows);
+            buffer.copyFromArgb(block, 0, width, y, rows);
+        }
+        return buffer;
+    }
+    //endregion
+
+    //region write
+    /**
+     * Creates a bitmap holding the pixels of the buffer
+     * @param buffer Pixels to write
+     * @param config Config of the new bitmap
+     * @param pool Pool the bitmap is taken from
+     * @return The new bitmap
+     */
+    static Bitmap write(@NonNull PixelBuffer buffer, @NonNull Bitmap.Config config, @NonNull SharedBitmapPool pool) {
+        int width = buffer.width();
+        int height = buffer.height();
+        Bitmap bitmap = pool.getDirty(width, height, config);
+        // Every pixel is written below, opaque images let the next stages skip alpha
+        bitmap.setHasAlpha(!buffer.isOpaque());
+
+        int blockRows = Math.max(1, BLOCK_PIXELS / width);
+        int[] block = new int[Math.min(blockRows, height) * width];
+        for (int y = 0; y < height; y += blockRows) {
+            int rows = Math.min(blockRows, height - y);
+            buffer.copyToArgb(y, rows, block, 0, width);
+            bitmap.setPixels(block, 0, width, 0, y, width, rows);
+        }
+        return bitmap;
+    }
+    //endregion
+
+    //region BitmapPixels
+    private BitmapPixels() { }
+    //endregion
+}
@@ -1,24 +1,30 @@
 package com.danielvilha.javaworkmanager.workers;
 
-import android.content.ContentResolver;
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.work.Data;
-import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
 import com.danielvilha.javaworkmanager.Constants;
+import com.danielvilha.javaworkmanager.cache.IntermediateIndex;
+import com.danielvilha.javaworkmanager.imaging.Cancellation;
+import com.danielvilha.javaworkmanager.imaging.GaussianBlur;
+import com.danielvilha.javaworkmanager.imaging.RawImageFormat;
+import com.danielvilha.javaworkmanager.metrics.WorkerMetrics;
+
+import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
 
 /**
  * Created by danielvilha on 2019-08-18
  */
-public class BlurWorker extends Worker {
+public class BlurWorker extends ExecutorWorker {
 
     //region Variables
     private static final String TAG = BlurWorker.class.getSimpleName();
@@ -30,46 +36,158 @@ public class BlurWorker extends Worker {
     }
     //endregion
 
+    //region getWorkExecutor
+    @NonNull
+    @Override
+    protected Executor getWorkExecutor() {
+        // Kept off the IO pool, which also hashes images and saves results
+        return WorkExecutors.getInstance(getApplicationContext()).blur();
+    }
+    //endregion
+
     //region doWork
     @NonNull
     @Override
     public Result doWork() {
         Context applicationContext = getApplicationContext();
         String resourceUri = getInputData().getString(Constants.KEY_IMAGE_URI);
-        WorkerUtils.makeStatusNotification("Doing <WORK_NAME>", applicationContext);
-        WorkerUtils.sleep();
+
+        // Position of the worker in a non fused chain, a fused blur is a single pass
+        int passCount = getInputData().getInt(Constants.KEY_PASS_COUNT, 1);
+        int pass = getInputData().getInt(Constants.KEY_PASS_INDEX, passCount);
+        boolean reducedPrecision = Constants.PIXEL_QUALITY_REDUCED.equals(
+                getInputData().getString(Constants.KEY_PIXEL_QUALITY));
+
+        WorkerMetrics metrics = new WorkerMetrics(TAG);
+        // Polled by the blur and the encoder, so a cancelled chain stops within a few rows
+        Cancellation cancellation = this::isStopped;
 
         try {
+            WorkerUtils.reportProgress(this, "Blurring image", pass, passCount, 0);
+            WorkerUtils.sleep(this, metrics);
+
             if (TextUtils.isEmpty(resourceUri)) {
                 Log.e(TAG, "Invalid input uri");
                 throw new IllegalArgumentException("Invalid input uri");
             }
 
-            ContentResolver resolver = applicationContext.getContentResolver();
-            // Create a bitmap
-            Bitmap picture = BitmapFactory.decodeStream(resolver.openInputStream(Uri.parse(resourceUri)));
+            float radius = getInputData().getFloat(Constants.KEY_BLUR_RADIUS, Constants.BLUR_RADIUS);
+
+            // The radius is given in pixels of the original image, the input may already be
+            // a scaled down intermediate
+            float inputScale = getInputData().getFloat(Constants.KEY_IMAGE_SCALE, 1f);
+
+            // Picked for every image, so a long batch adapts as the device heats up or drains
+            ExecutionMode mode = ExecutionMode.current(applicationContext,
+                    getInputData().getString(Constants.KEY_POWER_POLICY));
+            boolean degraded = mode.isDegraded() || getInputData().getBoolean(Constants.KEY_POWER_DEGRADED, false);
+            Log.i(TAG, "Blurring in " + mode + " mode");
 
-            // Blur the bitmap
-            Bitmap output = WorkerUtils.blurBitmap(picture, applicationContext);
+            // Variances add up, the output holds the blur of the input and the one of this pass
+            float inputSigma = getInputData().getFloat(Constants.KEY_SOURCE_SIGMA, 0f);
+            float passSigma = GaussianBlur.sigmaForRadius(radius);
+            float outputSigma = (float) Math.sqrt(inputSigma * inputSigma + passSigma * passSigma);
 
-            // Write bitmap to a temp file
-            Uri outputUri = WorkerUtils.writeBitmapToFile(applicationContext, output);
+            // RenderScript clamps the radius and degraded blurs are approximate, so their output is
+            // not the level it claims to be
+            String sourceKey = getInputData().getString(Constants.KEY_SOURCE_KEY);
+            boolean recordLevel = sourceKey != null && !degraded
+                    && !Constants.BLUR_ENGINE_RENDERSCRIPT.equals(getInputData().getString(Constants.KEY_BLUR_ENGINE));
+            IntermediateIndex index = IntermediateIndex.getInstance(applicationContext);
 
-            WorkerUtils.makeStatusNotification("Output is " + outputUri.toString(), applicationContext);
+            Uri inputUri = Uri.parse(resourceUri);
+            Uri outputUri;
+            float outputScale;
+
+            if (TiledBlur.shouldTile(applicationContext, inputUri, radius * inputScale, reducedPrecision, mode)) {
+                // Too large to hold in memory, stream it strip by strip to the temp file
+                File outputFile = WorkerUtils.createOutputFile(this, "png");
+                try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_BLUR)) {
+                    outputScale = inputScale * TiledBlur.blur(applicationContext, inputUri, radius * inputScale,
+                            reducedPrecision, mode, outputFile, metrics,
+                            (done, total) -> WorkerUtils.reportProgress(this, "Blurring image", pass, passCount, 100 * done / total),
+                            cancellation);
+                }
+                metrics.addBytesWritten(outputFile.length());
+                outputUri = Uri.fromFile(outputFile);
+
+                if (recordLevel) {
+                    index.record(sourceKey, outputSigma, outputScale, outputFile);
+                }
+            } else {
+                // Create a bitmap at the size the blur needs
+                BitmapDecoder.DecodedBitmap decoded;
+                try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_DECODE)) {
+                    decoded = BitmapDecoder.decode(applicationContext, inputUri, radius * inputScale,
+                            reducedPrecision, mode);
+                }
+                Bitmap picture = decoded.bitmap;
+                metrics.addBytesRead(decoded.bytesRead);
+                if (decoded.isDecoded()) {
+                    metrics.allocateBitmap(picture);
+                }
+                outputScale = inputScale * decoded.scale;
+                radius *= outputScale;
+                WorkerUtils.throwIfStopped(this);
+
+                // Blur the bitmap
+                SharedBitmapPool bitmapPool = SharedBitmapPool.getInstance(applicationContext);
+                Bitmap output;
+                try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_BLUR)) {
+                    if (Constants.BLUR_ENGINE_RENDERSCRIPT.equals(getInputData().getString(Constants.KEY_BLUR_ENGINE))) {
+                        radius = Math.min(radius, Constants.MAX_RENDERSCRIPT_RADIUS);
+                        output = WorkerUtils.blurBitmapWithRenderScript(picture, radius, applicationContext);
+                        metrics.allocateBitmap(output);
+                    } else {
+                        output = WorkerUtils.blurBitmap(picture, radius, mode,
+                                mode.pool(applicationContext), bitmapPool, cancellation, metrics);
+                    }
+                }
+
+                // The input is not needed anymore, its memory goes to the next bitmap
+                if (decoded.isDecoded()) {
+                    metrics.releaseBitmap(picture);
+                    bitmapPool.put(picture);
+                } else {
+                    IntermediateStore.getInstance().release(inputUri, bitmapPool);
+                }
+
+                // Stopped during a RenderScript blur, don't write a file nobody will read
+                WorkerUtils.throwIfStopped(this);
+
+                // Hand the bitmap to the next worker, the temp file is written in the background
+                // The level is recorded once its file is complete
+                float scale = outputScale;
+                try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_WRITE)) {
+                    outputUri = IntermediateStore.getInstance().put(this, output, !recordLevel ? null
+                            : file -> index.record(sourceKey, outputSigma, scale, file));
+                }
+                metrics.addBytesWritten(RawImageFormat.HEADER_SIZE + output.getByteCount());
+            }
+
+            WorkerUtils.reportProgress(this, "Output is " + outputUri.toString(), pass, passCount, 100);
 
             Data outputData = new Data.Builder()
                     .putString(Constants.KEY_IMAGE_URI, outputUri.toString())
+                    .putFloat(Constants.KEY_IMAGE_SCALE, outputScale)
+                    .putFloat(Constants.KEY_SOURCE_SIGMA, outputSigma)
+                    .putBoolean(Constants.KEY_POWER_DEGRADED, degraded)
+                    .putAll(WorkerUtils.publishMetrics(this, metrics))
                     .build();
 
             // If there were no errors, return SUCCESS
             return Result.success(outputData);
+        } catch (CancellationException exception) {
+            // Stopped, WorkManager ignores the result
+            Log.i(TAG, "Blur stopped");
+            return Result.failure();
         } catch (Throwable throwable) {
             // Technically WorkManager will return Result.failure()
             // but it's best to be explicit about it.
             // Thus if there were errors, we're return FAILURE
             Log.e(TAG, "Error applying blur", throwable);
 
-            return Result.failure();
+            return WorkerUtils.failure(getInputData());
         }
     }
     //endregion
@@ -1,21 +1,21 @@
 package com.danielvilha.javaworkmanager.workers;
 
 import android.content.Context;
-import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
-import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
 import com.danielvilha.javaworkmanager.Constants;
-
-import java.io.File;
+import com.danielvilha.javaworkmanager.metrics.WorkerMetrics;
 
 /**
  * Created by danielvilha on 2019-08-18
+ *
+ * Evicts the least recently used files of the OutputStore until it fits OUTPUT_STORE_MAX_BYTES.
+ * Runs on its own when the device is idle, never as part of a blur chain.
  */
-public class CleanupWorker extends Worker {
+public class CleanupWorker extends ExecutorWorker {
 
     //region Variables
     private static final String TAG = CleanupWorker.class.getSimpleName();
@@ -32,31 +32,19 @@ public class CleanupWorker extends Worker {
     @Override
     public Result doWork() {
         Context applicationContext = getApplicationContext();
-        WorkerUtils.makeStatusNotification("Doing <WORK_NAME>", applicationContext);
-        WorkerUtils.sleep();
+        WorkerMetrics metrics = new WorkerMetrics(TAG);
 
         try {
-            File outputDirectory = new File(applicationContext.getFilesDir(), Constants.OUTPUT_PATH);
-
-            if (outputDirectory.exists()) {
-                File[] entries = outputDirectory.listFiles();
-
-                if (entries != null && entries.length > 0) {
-                    for (File entry : entries) {
-                        String name = entry.getName();
-
-                        if (!TextUtils.isEmpty(name) && name.endsWith(".png")) {
-                            boolean deleted = entry.delete();
-                            Log.i(TAG, String.format("Deleted %s - %s", name, deleted));
-                        }
-                    }
-                }
+            long freedBytes;
+            try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_CLEANUP)) {
+                freedBytes = OutputStore.evict(applicationContext, Constants.OUTPUT_STORE_MAX_BYTES);
             }
+            Log.i(TAG, String.format("Freed %s bytes", freedBytes));
 
-            return Worker.Result.success();
+            return Result.success(WorkerUtils.publishMetrics(this, metrics));
         } catch (Exception exception) {
             Log.e(TAG, "Error cleaning up", exception);
-            return Worker.Result.failure();
+            return Result.failure();
         }
     }
     //endregion
@@ -0,0 +1,124 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.content.Context;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.danielvilha.javaworkmanager.Constants;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * How much CPU a blur may spend, picked by each BlurWorker from the thermal status, the battery
+ * state and the power policy of the request.
+ *
+ * A throttled device slows the exact blur down far more than the approximate one, so past
+ * THERMAL_STATUS_MODERATE, in power save mode or on a low battery, the blur gives up a little
+ * quality to keep its throughput: fewer kernel threads, the box blur from smaller radii on, and
+ * fewer pixels per sigma of blur.
+ */
+final class ExecutionMode {
+
+    //region Variables
+    static final ExecutionMode FULL = new ExecutionMode("full", 1,
+            Constants.BOX_BLUR_MIN_RADIUS, Constants.MIN_BLUR_SIGMA, Constants.MAX_BLUR_DOWNSCALE);
+    static final ExecutionMode REDUCED = new ExecutionMode("reduced", 2, 8f, 2f, 6f);
+    static final ExecutionMode MINIMAL = new ExecutionMode("minimal", 4, 4f, 1.5f, 8f);
+
+    final String name;
+    // The kernels run on this fraction of the CPU pool threads
+    final int threadDivisor;
+    // Blurs larger than this, in pixels of the decoded image, use the box blur
+    final float boxBlurMinRadius;
+    // Pixels kept for each sigma of the blur applied after decoding
+    final float minBlurSigma;
+    // Largest downscale applied because of the blur
+    final float maxBlurDownscale;
+    //endregion
+
+    //region ExecutionMode
+    private ExecutionMode(String name, int threadDivisor, float boxBlurMinRadius, float minBlurSigma,
+                          float maxBlurDownscale) {
+        this.name = name;
+        this.threadDivisor = threadDivisor;
+        this.boxBlurMinRadius = boxBlurMinRadius;
+        this.minBlurSigma = minBlurSigma;
+        this.maxBlurDownscale = maxBlurDownscale;
+    }
+    //endregion
+
+    //region current
+    /**
+     * @param applicationContext Application context
+     * @param powerPolicy One of the POWER_POLICY constants, null for POWER_POLICY_ADAPTIVE
+     * @return Mode the blur should run in right now
+     */
+    @NonNull
+    static ExecutionMode current(@NonNull Context applicationContext, @Nullable String powerPolicy) {
+        if (Constants.POWER_POLICY_QUALITY.equals(powerPolicy)) {
+            return FULL;
+        }
+
+        PowerManager powerManager = applicationContext.getSystemService(PowerManager.class);
+        int thermalStatus = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? powerManager.getCurrentThermalStatus() : PowerManager.THERMAL_STATUS_NONE;
+        if (thermalStatus >= PowerManager.THERMAL_STATUS_SEVERE) {
+            return MINIMAL;
+        }
+
+        boolean savePower = Constants.POWER_POLICY_SAVER.equals(powerPolicy)
+                || powerManager.isPowerSaveMode() || isBatteryLow(applicationContext);
+        if (thermalStatus >= PowerManager.THERMAL_STATUS_MODERATE) {
+            return savePower ? MINIMAL : REDUCED;
+        }
+        return savePower ? REDUCED : FULL;
+    }
+    //endregion
+
+    //region isBatteryLow
+    private static boolean isBatteryLow(Context applicationContext) {
+        BatteryManager batteryManager = applicationContext.getSystemService(BatteryManager.class);
+        if (batteryManager == null || batteryManager.isCharging()) {
+            return false;
+        }
+
+        // Integer.MIN_VALUE when the device doesn't report it
+        int percent = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+        return percent >= 0 && percent <= Constants.LOW_BATTERY_PERCENT;
+    }
+    //endregion
+
+    //region isDegraded
+    /**
+     * @return True if the output of a blur in this mode differs from the one in FULL mode
+     */
+    boolean isDegraded() {
+        return this != FULL;
+    }
+    //endregion
+
+    //region pool
+    /**
+     * @param applicationContext Application context
+     * @return Pool the kernels run on in this mode, never block on it
+     */
+    ForkJoinPool pool(@NonNull Context applicationContext) {
+        WorkExecutors executors = WorkExecutors.getInstance(applicationContext);
+        return executors.cpu(executors.cpu().getParallelism() / threadDivisor);
+    }
+    //endregion
+
+    //region toString
+    @NonNull
+    @Override
+    public String toString() {
+        return name;
+    }
+    //endregion
+}
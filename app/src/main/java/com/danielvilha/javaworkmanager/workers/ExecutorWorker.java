@@ -0,0 +1,66 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.concurrent.futures.CallbackToFutureAdapter;
+import androidx.work.ListenableWorker;
+import androidx.work.WorkerParameters;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Base of the workers. Like Worker, the work is a blocking {@link #doWork()}, but it runs on an
+ * executor chosen by the worker instead of the single executor WorkManager runs Workers on.
+ */
+abstract class ExecutorWorker extends ListenableWorker {
+
+    //region ExecutorWorker
+    ExecutorWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+    //endregion
+
+    //region startWork
+    @NonNull
+    @Override
+    public final ListenableFuture<Result> startWork() {
+        return CallbackToFutureAdapter.getFuture(completer -> {
+            Executor executor = getWorkExecutor();
+            executor.execute(() -> {
+                try {
+                    completer.set(doWork());
+                } catch (Throwable throwable) {
+                    completer.setException(throwable);
+                }
+            });
+            return getClass().getSimpleName() + " " + getId();
+        });
+    }
+    //endregion
+
+    //region getWorkExecutor
+    /**
+     * @return Executor {@link #doWork()} runs on, the IO pool unless overridden
+     */
+    @NonNull
+    protected Executor getWorkExecutor() {
+        return WorkExecutors.getInstance(getApplicationContext()).io();
+    }
+    //endregion
+
+    //region doWork
+    /**
+     * The work itself, run on {@link #getWorkExecutor()}
+     * @return Result of the work
+     */
+    @WorkerThread
+    @NonNull
+    public abstract Result doWork();
+    //endregion
+}
@@ -0,0 +1,177 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.work.ListenableWorker;
+
+import com.danielvilha.javaworkmanager.Constants;
+import com.danielvilha.javaworkmanager.imaging.RawImageFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Process wide store of the bitmaps handed from one worker to the next one in a chain.
+ *
+ * Every bitmap is kept in memory under the Uri of its output file, so a consumer running in the
+ * same process gets the Bitmap back without decoding anything. The file itself is written in the
+ * background in the raw format; it is only read when the process died or the entry was evicted
+ * from memory.
+ *
+ * Once its consumer is done with it, a bitmap goes back to the SharedBitmapPool. Bitmaps evicted
+ * from memory are left to the garbage collector since a consumer may still be reading them.
+ */
+final class IntermediateStore {
+
+    //region Variables
+    private static final String TAG = IntermediateStore.class.getSimpleName();
+
+    private static IntermediateStore sInstance;
+
+    private final LruCache<String, Bitmap> mBitmaps;
+    private final Map<String, Future<?>> mPendingWrites = new ConcurrentHashMap<>();
+    private final ExecutorService mWriter = Executors.newSingleThreadExecutor();
+    //endregion
+
+    //region getInstance
+    static synchronized IntermediateStore getInstance() {
+        if (sInstance == null) {
+            sInstance = new IntermediateStore(Constants.INTERMEDIATE_STORE_MAX_BYTES);
+        }
+        return sInstance;
+    }
+    //endregion
+
+    //region IntermediateStore
+    private IntermediateStore(int maxBytes) {
+        mBitmaps = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+    //endregion
+
+    //region put
+    /**
+     * Stores the bitmap in memory and schedules the write of its backing file
+     * @param worker Worker handing the bitmap over
+     * @param bitmap Bitmap handed to the next worker
+     * @param onWritten Given the backing file once fully written, before awaitWrite returns, or null
+     * @return Uri of the backing file, used as the key of the entry
+     */
+    Uri put(@NonNull ListenableWorker worker, @NonNull Bitmap bitmap, @Nullable Consumer<File> onWritten) {
+        File outputFile = WorkerUtils.createOutputFile(worker, RawImageFormat.FILE_EXTENSION);
+        Uri uri = Uri.fromFile(outputFile);
+        String key = uri.toString();
+
+        // Register the write before it starts so awaitWrite never misses it
+        FutureTask<Void> write = new FutureTask<>(() -> {
+            try {
+                RawBitmapCodec.write(outputFile, bitmap);
+                if (onWritten != null) {
+                    onWritten.accept(outputFile);
+                }
+                return null;
+            } catch (IOException exception) {
+                Log.e(TAG, "Error writing " + outputFile, exception);
+                // Don't leave a truncated image behind
+                outputFile.delete();
+                throw exception;
+            } finally {
+                mPendingWrites.remove(key);
+            }
+        });
+
+        mBitmaps.put(key, bitmap);
+        mPendingWrites.put(key, write);
+        mWriter.execute(write);
+
+        return uri;
+    }
+    //endregion
+
+    //region get
+    /**
+     * @param uri Uri returned by {@link #put(ListenableWorker, Bitmap, Consumer)}
+     * @return The bitmap stored for the Uri or null if it is not in memory anymore
+     */
+    @Nullable
+    Bitmap get(@NonNull Uri uri) {
+        return mBitmaps.get(uri.toString());
+    }
+    //endregion
+
+    //region release
+    /**
+     * Drops the bitmap of the Uri from memory and hands it back to the pool once its backing file
+     * is written. Only the consumer of the entry may release it.
+     * @param uri Uri returned by {@link #put(ListenableWorker, Bitmap, Consumer)}
+     * @param pool Pool the bitmap goes back to
+     */
+    void release(@NonNull Uri uri, @NonNull SharedBitmapPool pool) {
+        Bitmap bitmap = mBitmaps.remove(uri.toString());
+        if (bitmap != null) {
+            // Queued behind the write, which still reads the pixels
+            mWriter.execute(() -> pool.put(bitmap));
+        }
+    }
+    //endregion
+
+    //region trimMemory
+    /**
+     * Drops bitmaps from memory, their consumers read the backing files instead
+     * @param level Level given to ComponentCallbacks2.onTrimMemory
+     */
+    void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            mBitmaps.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            mBitmaps.trimToSize(mBitmaps.maxSize() / 2);
+        }
+    }
+    //endregion
+
+    //region awaitWrite
+    /**
+     * Waits until the backing file of the Uri is fully written, if it is still being written
+     * @param uri Uri returned by {@link #put(ListenableWorker, Bitmap, Consumer)}
+     */
+    @WorkerThread
+    void awaitWrite(@NonNull Uri uri) throws IOException {
+        Future<?> pending = mPendingWrites.get(uri.toString());
+        if (pending == null) {
+            return;
+        }
+
+        try {
+            pending.get();
+        } catch (ExecutionException exception) {
+            throw new IOException("Error writing " + uri, exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing " + uri, exception);
+        }
+    }
+    //endregion
+}
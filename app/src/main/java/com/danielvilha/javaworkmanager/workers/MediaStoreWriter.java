@@ -0,0 +1,446 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.net.Uri;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.provider.MediaStore;
+import android.util.Size;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.danielvilha.javaworkmanager.Constants;
+import com.danielvilha.javaworkmanager.imaging.Cancellation;
+import com.danielvilha.javaworkmanager.imaging.PngWriter;
+import com.danielvilha.javaworkmanager.metrics.WorkerMetrics;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Saves images to the MediaStore without going through insertImage, which needs the whole Bitmap
+ * and encodes it again as JPEG. A pending row is inserted, the image bytes are written straight
+ * into it and the row is published once complete.
+ *
+ * PNG intermediates are copied as they are, raw intermediates are encoded to PNG a block of rows
+ * at a time, deflated in parallel, and only a bitmap still held by the IntermediateStore is
+ * encoded from memory. The encoders stop between rows once cancelled, and the unfinished row is
+ * deleted.
+ *
+ * JPEG and WebP outputs are encoded by Bitmap.compress, from the bitmap held by the
+ * IntermediateStore or decoded again, at most at MAX_DECODE_DIMENSION. With a byte size target the
+ * quality is binary searched in memory before anything is written.
+ *
+ * A heavy blur works on a smaller copy of the image. That copy is scaled back up to the size of
+ * its source, at most MAX_DECODE_DIMENSION, and encoded from memory, so the saved image keeps its
+ * size whatever the blur strength.
+ */
+final class MediaStoreWriter {
+
+    //region Variables
+    // Size of the buffer between the encoder and the MediaStore file
+    private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+    // Pixels read from a bitmap at a time when encoding it
+    private static final int BLOCK_PIXELS = 64 * 1024;
+    //endregion
+
+    //region save
+    /**
+     * Saves the image in the MediaStore
+     * @param applicationContext Application context
+     * @param imageUri Image produced by a previous worker
+     * @param imageScale Size of the image divided by the size of its source
+     * @param title Title of the image
+     * @param description Description of the image
+     * @param outputSpec Format the image is saved in
+     * @param metrics Metrics the stages are recorded in
+     * @param cancellation Polled while encoding
+     * @return Uri of the new MediaStore row
+     * @throws IOException Throws if the image cannot be read or the row written
+     * @throws java.util.concurrent.CancellationException Throws if cancelled, nothing is saved then
+     */
+    @WorkerThread
+    static Uri save(@NonNull Context applicationContext, @NonNull Uri imageUri, float imageScale,
+                    @NonNull String title, @NonNull String description, @NonNull OutputSpec outputSpec,
+                    @NonNull WorkerMetrics metrics, @NonNull Cancellation cancellation) throws IOException {
+        ContentResolver resolver = applicationContext.getContentResolver();
+        Size outputSize = outputSize(applicationContext, imageUri, imageScale);
+
+        Uri outputUri;
+        try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_MEDIASTORE)) {
+            outputUri = insertPending(resolver, title, description, outputSpec);
+        }
+
+        try {
+            try (ParcelFileDescriptor descriptor = resolver.openFileDescriptor(outputUri, "w")) {
+                if (descriptor == null) {
+                    throw new FileNotFoundException("Unable to open " + outputUri);
+                }
+
+                // The stream doesn't own the descriptor, it stays open once the stream is closed
+                try (FileOutputStream out = new FileOutputStream(descriptor.getFileDescriptor())) {
+                    if (outputSize != null) {
+                        writeScaled(applicationContext, imageUri, outputSize, outputSpec, out, metrics,
+                                cancellation);
+                    } else if (outputSpec.isLossless()) {
+                        write(applicationContext, imageUri, out, metrics, cancellation);
+                    } else {
+                        writeCompressed(applicationContext, imageUri, outputSpec, out, metrics, cancellation);
+                    }
+                }
+                metrics.addBytesWritten(descriptor.getStatSize());
+            }
+
+            cancellation.throwIfCancelled();
+            try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_MEDIASTORE)) {
+                publish(resolver, outputUri);
+            }
+        } catch (Throwable throwable) {
+            // Don't leave an empty or truncated image in the gallery
+            try {
+                resolver.delete(outputUri, null, null);
+            } catch (RuntimeException exception) {
+                // Failing to clean up must not hide why the save failed
+                throwable.addSuppressed(exception);
+            }
+            throw throwable;
+        }
+
+        return outputUri;
+    }
+    //endregion
+
+    //region outputSize
+    /**
+     * Size the image is saved at: the size of its source, at most MAX_DECODE_DIMENSION
+     * @return The size, or null if the image already has it
+     */
+    @WorkerThread
+    private static Size outputSize(Context applicationContext, Uri imageUri, float imageScale) throws IOException {
+        if (imageScale >= 1f) {
+            return null;
+        }
+
+        Size size = imageSize(applicationContext, imageUri);
+        float sourceWidth = size.getWidth() / imageScale;
+        float sourceHeight = size.getHeight() / imageScale;
+        float scale = Math.min(1f, Constants.MAX_DECODE_DIMENSION / Math.max(sourceWidth, sourceHeight));
+        int width = Math.max(1, Math.round(sourceWidth * scale));
+        int height = Math.max(1, Math.round(sourceHeight * scale));
+
+        // The scale was rounded along with the size, a pixel off is not worth resampling
+        if (width <= size.getWidth() + 1 && height <= size.getHeight() + 1) {
+            return null;
+        }
+        return new Size(width, height);
+    }
+    //endregion
+
+    //region imageSize
+    @WorkerThread
+    private static Size imageSize(Context applicationContext, Uri imageUri) throws IOException {
+        IntermediateStore store = IntermediateStore.getInstance();
+        Bitmap stored = store.get(imageUri);
+        if (stored != null) {
+            return new Size(stored.getWidth(), stored.getHeight());
+        }
+
+        store.awaitWrite(imageUri);
+        if (RawBitmapCodec.isRawImage(imageUri)) {
+            return RawBitmapCodec.readSize(new File(imageUri.getPath()));
+        }
+        return BitmapDecoder.readSize(applicationContext.getContentResolver(), imageUri);
+    }
+    //endregion
+
+    //region write
+    @WorkerThread
+    private static void write(Context applicationContext, Uri imageUri, FileOutputStream out,
+                              WorkerMetrics metrics, Cancellation cancellation) throws IOException {
+        IntermediateStore store = IntermediateStore.getInstance();
+        ForkJoinPool pool = WorkExecutors.getInstance(applicationContext).cpu();
+        OutputStore.touch(imageUri);
+
+        // Still in memory, encoding it costs less than reading the file back
+        Bitmap stored = store.get(imageUri);
+        if (stored != null) {
+            try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_ENCODE)) {
+                writePng(stored, out, pool, cancellation);
+            } finally {
+                store.release(imageUri, SharedBitmapPool.getInstance(applicationContext));
+            }
+            return;
+        }
+
+        store.awaitWrite(imageUri);
+
+        String path = imageUri.getPath();
+        if (!"file".equals(imageUri.getScheme()) || path == null) {
+            // Not produced by a worker, decode and encode it
+            BitmapDecoder.DecodedBitmap decoded;
+            try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_DECODE)) {
+                decoded = BitmapDecoder.decode(applicationContext, imageUri, 0f, false, ExecutionMode.FULL);
+            }
+            metrics.addBytesRead(decoded.bytesRead);
+            metrics.allocateBitmap(decoded.bitmap);
+
+            try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_ENCODE)) {
+                writePng(decoded.bitmap, out, pool, cancellation);
+            } finally {
+                metrics.releaseBitmap(decoded.bitmap);
+                SharedBitmapPool.getInstance(applicationContext).put(decoded.bitmap);
+            }
+            return;
+        }
+
+        File inputFile = new File(path);
+        metrics.addBytesRead(inputFile.length());
+
+        if (RawBitmapCodec.isRawImage(imageUri)) {
+            try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_ENCODE)) {
+                RawBitmapCodec.writePng(inputFile, new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE),
+                        Deflater.DEFAULT_COMPRESSION, pool, cancellation);
+            }
+        } else {
+            // Already a PNG, copy the bytes as they are
+            try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_WRITE);
+                 FileChannel source = new FileInputStream(inputFile).getChannel()) {
+                FileChannel target = out.getChannel();
+                long size = source.size();
+                long position = 0;
+                while (position < size) {
+                    cancellation.throwIfCancelled();
+                    position += source.transferTo(position, size - position, target);
+                }
+            }
+        }
+    }
+    //endregion
+
+    //region writeScaled
+    /**
+     * Scales the image up to the output size and encodes it in the format of the spec
+     */
+    @WorkerThread
+    private static void writeScaled(Context applicationContext, Uri imageUri, Size outputSize,
+                                    OutputSpec outputSpec, FileOutputStream out, WorkerMetrics metrics,
+                                    Cancellation cancellation) throws IOException {
+        IntermediateStore store = IntermediateStore.getInstance();
+        SharedBitmapPool bitmapPool = SharedBitmapPool.getInstance(applicationContext);
+        OutputStore.touch(imageUri);
+
+        Bitmap bitmap = store.get(imageUri);
+        boolean stored = bitmap != null;
+        if (!stored) {
+            BitmapDecoder.DecodedBitmap decoded;
+            try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_DECODE)) {
+                decoded = BitmapDecoder.decode(applicationContext, imageUri, 0f, false, ExecutionMode.FULL);
+            }
+            metrics.addBytesRead(decoded.bytesRead);
+            metrics.allocateBitmap(decoded.bitmap);
+            bitmap = decoded.bitmap;
+        }
+
+        Bitmap scaled = null;
+        try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_ENCODE)) {
+            // SRC overwrites every pixel, the pooled bitmap doesn't need clearing
+            scaled = bitmapPool.getDirty(outputSize.getWidth(), outputSize.getHeight(), bitmap.getConfig());
+            Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+            paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+            new Canvas(scaled).drawBitmap(bitmap, null,
+                    new Rect(0, 0, outputSize.getWidth(), outputSize.getHeight()), paint);
+            metrics.allocateBitmap(scaled);
+            cancellation.throwIfCancelled();
+
+            if (outputSpec.isLossless()) {
+                writePng(scaled, out, WorkExecutors.getInstance(applicationContext).cpu(), cancellation);
+            } else {
+                compress(scaled, outputSpec, new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE), cancellation);
+            }
+        } finally {
+            metrics.releaseBitmap(scaled);
+            bitmapPool.put(scaled);
+            if (stored) {
+                store.release(imageUri, bitmapPool);
+            } else {
+                metrics.releaseBitmap(bitmap);
+                bitmapPool.put(bitmap);
+            }
+        }
+    }
+    //endregion
+
+    //region writePng
+    /**
+     * Encodes the bitmap as PNG a block of rows at a time, deflating on the pool
+     */
+    private static void writePng(Bitmap bitmap, OutputStream out, ForkJoinPool pool,
+                                 Cancellation cancellation) throws IOException {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int blockRows = Math.max(1, BLOCK_PIXELS / width);
+        int[] pixels = new int[blockRows * width];
+
+        try (PngWriter writer = new PngWriter(new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE), width, height,
+                bitmap.hasAlpha(), Deflater.DEFAULT_COMPRESSION, pool, cancellation)) {
+            for (int y = 0; y < height; y += blockRows) {
+                int rows = Math.min(blockRows, height - y);
+                bitmap.getPixels(pixels, 0, width, 0, y, width, rows);
+                writer.writeRows(pixels, 0, width, rows);
+            }
+        }
+    }
+    //endregion
+
+    //region writeCompressed
+    @WorkerThread
+    private static void writeCompressed(Context applicationContext, Uri imageUri, OutputSpec outputSpec,
+                                        FileOutputStream out, WorkerMetrics metrics,
+                                        Cancellation cancellation) throws IOException {
+        IntermediateStore store = IntermediateStore.getInstance();
+        SharedBitmapPool pool = SharedBitmapPool.getInstance(applicationContext);
+        OutputStore.touch(imageUri);
+
+        Bitmap bitmap = store.get(imageUri);
+        boolean stored = bitmap != null;
+        if (!stored) {
+            BitmapDecoder.DecodedBitmap decoded;
+            try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_DECODE)) {
+                decoded = BitmapDecoder.decode(applicationContext, imageUri, 0f, false, ExecutionMode.FULL);
+            }
+            metrics.addBytesRead(decoded.bytesRead);
+            metrics.allocateBitmap(decoded.bitmap);
+            bitmap = decoded.bitmap;
+        }
+
+        try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_ENCODE)) {
+            compress(bitmap, outputSpec, new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE), cancellation);
+        } finally {
+            if (stored) {
+                store.release(imageUri, pool);
+            } else {
+                metrics.releaseBitmap(bitmap);
+                pool.put(bitmap);
+            }
+        }
+    }
+    //endregion
+
+    //region compress
+    /**
+     * Encodes the bitmap at the quality of the spec. With a byte size target, the highest quality
+     * whose output fits is binary searched, down to OUTPUT_MIN_QUALITY. The outputs at the
+     * different qualities are kept in memory and only the chosen one is written.
+     */
+    private static void compress(Bitmap bitmap, OutputSpec outputSpec, OutputStream out,
+                                 Cancellation cancellation) throws IOException {
+        Bitmap.CompressFormat format = outputSpec.getCompressFormat();
+        // From Android 10 on, WebP at 100 is lossless
+        int maxQuality = format == Bitmap.CompressFormat.WEBP
+                ? Math.min(99, outputSpec.getQuality()) : outputSpec.getQuality();
+        long maxBytes = outputSpec.getMaxBytes();
+
+        if (maxBytes == 0) {
+            if (!bitmap.compress(format, maxQuality, out)) {
+                throw new IOException("Unable to encode as " + format);
+            }
+            out.flush();
+            return;
+        }
+
+        ByteArrayOutputStream probe = new ByteArrayOutputStream((int) Math.min(maxBytes, OUTPUT_BUFFER_SIZE));
+        ByteArrayOutputStream fitting = null;
+
+        // Most images fit at the requested quality, try it before searching
+        int low = Math.min(Constants.OUTPUT_MIN_QUALITY, maxQuality);
+        int high = maxQuality;
+        int quality = high;
+        while (low <= high) {
+            cancellation.throwIfCancelled();
+            probe.reset();
+            if (!bitmap.compress(format, quality, probe)) {
+                throw new IOException("Unable to encode as " + format);
+            }
+
+            if (probe.size() <= maxBytes) {
+                ByteArrayOutputStream previous = fitting;
+                fitting = probe;
+                probe = previous != null ? previous : new ByteArrayOutputStream(fitting.size());
+                low = quality + 1;
+            } else {
+                high = quality - 1;
+            }
+            quality = (low + high) >>> 1;
+        }
+
+        if (fitting == null) {
+            // Even the lowest quality is too large, it is still the closest to the target
+            fitting = probe;
+            probe.reset();
+            bitmap.compress(format, Math.min(Constants.OUTPUT_MIN_QUALITY, maxQuality), fitting);
+        }
+
+        fitting.writeTo(out);
+        out.flush();
+    }
+    //endregion
+
+    //region insertPending
+    private static Uri insertPending(ContentResolver resolver, String title, String description,
+                                     OutputSpec outputSpec) throws IOException {
+        long now = System.currentTimeMillis();
+
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.Images.Media.TITLE, title);
+        values.put(MediaStore.Images.Media.DISPLAY_NAME, title + " " + now + "." + outputSpec.getExtension());
+        values.put(MediaStore.Images.Media.DESCRIPTION, description);
+        values.put(MediaStore.Images.Media.MIME_TYPE, outputSpec.getMimeType());
+        values.put(MediaStore.Images.Media.DATE_ADDED, now / 1000);
+        values.put(MediaStore.Images.Media.DATE_TAKEN, now);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            // Hidden from other apps until it is complete
+            values.put(MediaStore.Images.Media.IS_PENDING, 1);
+        }
+
+        Uri outputUri = resolver.insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, values);
+        if (outputUri == null) {
+            throw new IOException("Unable to insert a MediaStore row");
+        }
+        return outputUri;
+    }
+    //endregion
+
+    //region publish
+    private static void publish(ContentResolver resolver, Uri outputUri) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            ContentValues values = new ContentValues();
+            values.put(MediaStore.Images.Media.IS_PENDING, 0);
+            resolver.update(outputUri, values, null, null);
+        }
+    }
+    //endregion
+
+    //region MediaStoreWriter
+    private MediaStoreWriter() { }
+    //endregion
+}
@@ -0,0 +1,140 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+
+import com.danielvilha.javaworkmanager.Constants;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Format the blurred image is saved in. PNG is lossless, JPEG and WebP are encoded at the given
+ * quality, or at the highest quality below it that fits the byte size target when there is one.
+ * A blurred image has little fine detail left, so a lossy format is a fraction of the PNG size.
+ */
+public final class OutputSpec {
+
+    //region Variables
+    // Lossless PNG, the default
+    public static final OutputSpec PNG = new OutputSpec(Constants.OUTPUT_FORMAT_PNG, 100, 0);
+
+    private final String mFormat;
+    private final int mQuality;
+    private final long mMaxBytes;
+    //endregion
+
+    //region OutputSpec
+    /**
+     * @param format One of the OUTPUT_FORMAT constants
+     * @param quality Quality of the lossy formats, from 0 to 100, ignored for PNG
+     * @param maxBytes Byte size target of the lossy formats, or 0 for none
+     */
+    public OutputSpec(@NonNull String format, int quality, long maxBytes) {
+        if (!Constants.OUTPUT_FORMAT_PNG.equals(format)
+                && !Constants.OUTPUT_FORMAT_JPEG.equals(format)
+                && !Constants.OUTPUT_FORMAT_WEBP.equals(format)) {
+            throw new IllegalArgumentException("Unknown output format " + format);
+        }
+        if (quality < 0 || quality > 100) {
+            throw new IllegalArgumentException("Invalid quality " + quality);
+        }
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Invalid byte size target " + maxBytes);
+        }
+
+        mFormat = format;
+        mQuality = quality;
+        mMaxBytes = maxBytes;
+    }
+    //endregion
+
+    //region fromData
+    /**
+     * @param data Input data of a worker
+     * @return The spec put in the data by {@link #toData()}, or PNG if there is none
+     */
+    @NonNull
+    public static OutputSpec fromData(@NonNull Data data) {
+        String format = data.getString(Constants.KEY_OUTPUT_FORMAT);
+        if (format == null) {
+            return PNG;
+        }
+        return new OutputSpec(format,
+                data.getInt(Constants.KEY_OUTPUT_QUALITY, Constants.OUTPUT_DEFAULT_QUALITY),
+                data.getLong(Constants.KEY_OUTPUT_MAX_BYTES, 0));
+    }
+    //endregion
+
+    //region toData
+    @NonNull
+    public Data toData() {
+        return new Data.Builder()
+                .putString(Constants.KEY_OUTPUT_FORMAT, mFormat)
+                .putInt(Constants.KEY_OUTPUT_QUALITY, mQuality)
+                .putLong(Constants.KEY_OUTPUT_MAX_BYTES, mMaxBytes)
+                .build();
+    }
+    //endregion
+
+    //region Getters
+    @NonNull
+    public String getFormat() { return mFormat; }
+
+    public int getQuality() { return mQuality; }
+
+    public long getMaxBytes() { return mMaxBytes; }
+
+    public boolean isLossless() { return Constants.OUTPUT_FORMAT_PNG.equals(mFormat); }
+    //endregion
+
+    //region getMimeType
+    @NonNull
+    String getMimeType() {
+        switch (mFormat) {
+            case Constants.OUTPUT_FORMAT_JPEG:
+                return "image/jpeg";
+            case Constants.OUTPUT_FORMAT_WEBP:
+                return "image/webp";
+            default:
+                return "image/png";
+        }
+    }
+    //endregion
+
+    //region getExtension
+    @NonNull
+    String getExtension() {
+        return Constants.OUTPUT_FORMAT_JPEG.equals(mFormat) ? "jpg" : mFormat;
+    }
+    //endregion
+
+    //region getCompressFormat
+    /**
+     * @return Format Bitmap.compress encodes the lossy formats with
+     */
+    @NonNull
+    Bitmap.CompressFormat getCompressFormat() {
+        switch (mFormat) {
+            case Constants.OUTPUT_FORMAT_JPEG:
+                return Bitmap.CompressFormat.JPEG;
+            case Constants.OUTPUT_FORMAT_WEBP:
+                return Bitmap.CompressFormat.WEBP;
+            default:
+                return Bitmap.CompressFormat.PNG;
+        }
+    }
+    //endregion
+
+    //region toString
+    /**
+     * @return Every field of the spec, part of the ResultCache key
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        return mFormat + "/" + mQuality + "/" + mMaxBytes;
+    }
+    //endregion
+}
@@ -0,0 +1,219 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import com.danielvilha.javaworkmanager.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Size bounded store of the files under OUTPUT_PATH. Every file is named after the chain that
+ * created it, {@code <chainKey>.<uuid>.<extension>}, and its last modified time is bumped each
+ * time it is read, so the oldest time is the least recently used file.
+ *
+ * {@link #evict(Context, long)} deletes the least recently used files until the store fits its
+ * quota, skipping the files of chains that still have unfinished work. A chain reading a file
+ * of another chain takes its own link to it first, see {@link #link(Context, File, String)}.
+ */
+public final class OutputStore {
+
+    //region Variables
+    private static final String TAG = OutputStore.class.getSimpleName();
+    //endregion
+
+    //region createFile
+    /**
+     * Creates a new file in the store
+     * @param applicationContext Application context
+     * @param chainKey Key of the chain the file belongs to, see {@link WorkerUtils#chainKey}
+     * @param extension Extension of the file name
+     * @return The new file, not written yet
+     */
+    static File createFile(@NonNull Context applicationContext, @NonNull String chainKey, @NonNull String extension) {
+        String name = String.format("%s.%s.%s", chainKey, UUID.randomUUID().toString(), extension);
+        File outputDir = directory(applicationContext);
+
+        if (!outputDir.exists()) {
+            outputDir.mkdirs(); // should succeed
+        }
+
+        return new File(outputDir, name);
+    }
+    //endregion
+
+    //region link
+    /**
+     * Gives a chain its own name for a file created by another chain, so evicting the file of the
+     * other chain once it has finished leaves the chain its input. The file is hard linked, or
+     * copied where links are not supported.
+     * @param applicationContext Application context
+     * @param file File of the store or of the ResultCache
+     * @param chainKey Key of the chain about to read the file
+     * @return The file under the key of the chain
+     * @throws IOException Throws if the file could not be linked nor copied
+     */
+    @WorkerThread
+    public static File link(@NonNull Context applicationContext, @NonNull File file, @NonNull String chainKey)
+            throws IOException {
+        String name = file.getName();
+        File link = createFile(applicationContext, chainKey, name.substring(name.lastIndexOf('.') + 1));
+
+        try {
+            Files.createLink(link.toPath(), file.toPath());
+        } catch (IOException | UnsupportedOperationException exception) {
+            Log.w(TAG, "Unable to link " + file + ", copying it", exception);
+            Files.copy(file.toPath(), link.toPath());
+        }
+        return link;
+    }
+    //endregion
+
+    //region touch
+    /**
+     * Marks the file behind the Uri as used now, if it is a file of the store
+     * @param uri Uri of an image
+     */
+    static void touch(@NonNull Uri uri) {
+        String path = uri.getPath();
+        if ("file".equals(uri.getScheme()) && path != null && path.contains("/" + Constants.OUTPUT_PATH + "/")) {
+            new File(path).setLastModified(System.currentTimeMillis());
+        }
+    }
+    //endregion
+
+    //region evict
+    /**
+     * Deletes the least recently used files until the store takes at most maxBytes
+     * @param applicationContext Application context
+     * @param maxBytes Quota of the store
+     * @return Number of bytes freed
+     */
+    @WorkerThread
+    static long evict(@NonNull Context applicationContext, long maxBytes) {
+        File[] entries = directory(applicationContext).listFiles(File::isFile);
+        if (entries == null || entries.length == 0) {
+            return 0;
+        }
+
+        // Read the times once, they change while files are being read
+        Map<File, Long> lastUsed = new HashMap<>();
+        long totalBytes = 0;
+        for (File entry : entries) {
+            lastUsed.put(entry, entry.lastModified());
+            totalBytes += entry.length();
+        }
+        if (totalBytes <= maxBytes) {
+            return 0;
+        }
+
+        List<File> files = new ArrayList<>(Arrays.asList(entries));
+        Collections.sort(files, (a, b) -> Long.compare(lastUsed.get(a), lastUsed.get(b)));
+
+        WorkManager workManager = WorkManager.getInstance(applicationContext);
+        Map<String, Boolean> running = new HashMap<>();
+        long freedBytes = 0;
+
+        for (File file : files) {
+            if (totalBytes - freedBytes <= maxBytes) {
+                break;
+            }
+
+            String chainKey = chainKey(file);
+            Boolean protect = running.get(chainKey);
+            if (protect == null) {
+                protect = isChainRunning(workManager, chainKey);
+                running.put(chainKey, protect);
+            }
+            if (protect) {
+                continue;
+            }
+
+            long length = file.length();
+            if (file.delete()) {
+                freedBytes += length;
+                Log.i(TAG, String.format("Evicted %s - %s bytes", file.getName(), length));
+            }
+        }
+
+        return freedBytes;
+    }
+    //endregion
+
+    //region directory
+    private static File directory(Context applicationContext) {
+        return new File(applicationContext.getFilesDir(), Constants.OUTPUT_PATH);
+    }
+    //endregion
+
+    //region chainKey
+    /**
+     * @return Key of the chain that created the file, or its whole name for files of older versions
+     */
+    private static String chainKey(File file) {
+        String name = file.getName();
+        int separator = name.indexOf('.');
+        return separator < 0 ? name : name.substring(0, separator);
+    }
+    //endregion
+
+    //region isChainRunning
+    /**
+     * @return True if the chain has work that is not finished yet, or if it cannot be told
+     */
+    @WorkerThread
+    private static boolean isChainRunning(WorkManager workManager, String chainKey) {
+        try {
+            List<WorkInfo> workInfos;
+            if (chainKey.startsWith(Constants.TAG_CHAIN_PREFIX) || chainKey.startsWith(Constants.TAG_BATCH_PREFIX)) {
+                workInfos = workManager.getWorkInfosByTag(chainKey).get();
+            } else {
+                // Workers outside of any chain use their id as the key
+                UUID id;
+                try {
+                    id = UUID.fromString(chainKey);
+                } catch (IllegalArgumentException exception) {
+                    return false;
+                }
+                WorkInfo workInfo = workManager.getWorkInfoById(id).get();
+                workInfos = workInfo == null ? Collections.emptyList() : Collections.singletonList(workInfo);
+            }
+
+            for (WorkInfo workInfo : workInfos) {
+                if (!workInfo.getState().isFinished()) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (ExecutionException exception) {
+            Log.e(TAG, "Error reading the state of " + chainKey, exception);
+            return true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+    //endregion
+
+    //region OutputStore
+    private OutputStore() { }
+    //endregion
+}
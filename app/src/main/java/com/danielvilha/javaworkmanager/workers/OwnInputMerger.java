@@ -0,0 +1,26 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.InputMerger;
+
+import java.util.List;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * InputMerger that ignores the outputs of the prerequisites. Used for the first worker of an
+ * image that is queued behind another, unrelated, image.
+ */
+public class OwnInputMerger extends InputMerger {
+
+    //region merge
+    @NonNull
+    @Override
+    public Data merge(@NonNull List<Data> inputs) {
+        // WorkManager passes the input data of the request first, followed by the outputs of
+        // its prerequisites
+        return inputs.isEmpty() ? Data.EMPTY : inputs.get(0);
+    }
+    //endregion
+}
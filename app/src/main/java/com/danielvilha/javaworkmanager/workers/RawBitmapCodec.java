@@ -0,0 +1,188 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.Size;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.danielvilha.javaworkmanager.imaging.Cancellation;
+import com.danielvilha.javaworkmanager.imaging.PixelBuffer;
+import com.danielvilha.javaworkmanager.imaging.PngWriter;
+import com.danielvilha.javaworkmanager.imaging.RawImageFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Reads and writes bitmaps in the {@link RawImageFormat} through memory mapped files.
+ * Intermediates only live for a few seconds, so they are stored uncompressed. Whether the bitmap
+ * has alpha is kept in the header, so opaque intermediates stay on the opaque path of the blur.
+ */
+final class RawBitmapCodec {
+
+    //region Variables
+    // Pixels converted at a time when encoding a raw image
+    private static final int PNG_BLOCK_PIXELS = 64 * 1024;
+    //endregion
+
+    //region isRawImage
+    /**
+     * @param uri Uri of an image
+     * @return True if the Uri points to a raw intermediate file
+     */
+    static boolean isRawImage(@NonNull Uri uri) {
+        String path = uri.getPath();
+        return "file".equals(uri.getScheme())
+                && path != null
+                && path.endsWith("." + RawImageFormat.FILE_EXTENSION);
+    }
+    //endregion
+
+    //region write
+    /**
+     * Writes the bitmap to the file
+     * @param outputFile File to write
+     * @param bitmap Bitmap to write
+     * @throws IOException Throws if the file cannot be written
+     */
+    @WorkerThread
+    static void write(@NonNull File outputFile, @NonNull Bitmap bitmap) throws IOException {
+        // Other configs go through a copy, dropped once written
+        Bitmap converted = null;
+        if (pixelFormat(bitmap.getConfig()) == 0) {
+            converted = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+            bitmap = converted;
+        }
+
+        RawImageFormat.Header header = new RawImageFormat.Header(
+                pixelFormat(bitmap.getConfig()), bitmap.getWidth(), bitmap.getHeight(), !bitmap.hasAlpha());
+
+        try (RandomAccessFile file = new RandomAccessFile(outputFile, "rw");
+             FileChannel channel = file.getChannel()) {
+            // Rewriting a larger file must not leave its tail behind
+            file.setLength(header.fileSize());
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, header.fileSize());
+            RawImageFormat.writeHeader(buffer, header);
+            bitmap.copyPixelsToBuffer(buffer);
+        } finally {
+            if (converted != null) {
+                converted.recycle();
+            }
+        }
+    }
+    //endregion
+
+    //region read
+    /**
+     * Reads the bitmap stored in the file
+     * @param inputFile File to read
+     * @param pool Pool the bitmap is taken from
+     * @return Bitmap stored in the file
+     * @throws IOException Throws if the file cannot be read
+     */
+    @WorkerThread
+    static Bitmap read(@NonNull File inputFile, @NonNull SharedBitmapPool pool) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(inputFile, "r");
+             FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            RawImageFormat.Header header = RawImageFormat.readHeader(buffer);
+
+            // Every pixel is overwritten by the copy
+            Bitmap bitmap = pool.getDirty(header.width, header.height, config(header.pixelFormat));
+            bitmap.copyPixelsFromBuffer(buffer);
+            bitmap.setHasAlpha(!header.opaque);
+            return bitmap;
+        }
+    }
+    //endregion
+
+    //region readSize
+    /**
+     * Reads the size of the raw image stored in the file without reading its pixels
+     * @param inputFile File to read
+     * @return Width and height of the image
+     * @throws IOException Throws if the file cannot be read
+     */
+    @WorkerThread
+    static Size readSize(@NonNull File inputFile) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(inputFile, "r");
+             FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, RawImageFormat.HEADER_SIZE);
+            RawImageFormat.Header header = RawImageFormat.readHeader(buffer);
+            return new Size(header.width, header.height);
+        }
+    }
+    //endregion
+
+    //region writePng
+    /**
+     * Encodes the raw image stored in the file as PNG, a block of rows at a time, without ever
+     * holding the whole image in memory
+     * @param inputFile Raw image to encode
+     * @param out Stream the PNG is written to, closed when done
+     * @param level Deflate compression level
+     * @param pool Pool the PNG is deflated on
+     * @param cancellation Polled before each row
+     * @throws IOException Throws if the file cannot be read or the PNG written
+     * @throws java.util.concurrent.CancellationException Throws if cancelled, the PNG is then incomplete
+     */
+    @WorkerThread
+    static void writePng(@NonNull File inputFile, @NonNull OutputStream out, int level,
+                         @NonNull ForkJoinPool pool, @NonNull Cancellation cancellation) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(inputFile, "r");
+             FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            RawImageFormat.Header header = RawImageFormat.readHeader(buffer);
+            boolean alpha = !header.opaque;
+
+            int blockRows = Math.min(header.height, Math.max(1, PNG_BLOCK_PIXELS / header.width));
+            PixelBuffer pixels = new PixelBuffer(header.width, blockRows, !alpha);
+
+            try (PngWriter writer = new PngWriter(out, header.width, header.height, alpha, level, pool,
+                    cancellation)) {
+                for (int y = 0; y < header.height; y += blockRows) {
+                    int rows = Math.min(blockRows, header.height - y);
+                    RawImageFormat.readBuffer(buffer, header, pixels, rows);
+                    writer.writeRows(pixels, 0, rows);
+                }
+            }
+        }
+    }
+    //endregion
+
+    //region pixelFormat
+    /**
+     * @return The raw pixel format of the config or 0 if it has none
+     */
+    private static int pixelFormat(Bitmap.Config config) {
+        if (config == Bitmap.Config.ARGB_8888) {
+            return RawImageFormat.PIXEL_FORMAT_RGBA_8888;
+        } else if (config == Bitmap.Config.RGB_565) {
+            return RawImageFormat.PIXEL_FORMAT_RGB_565;
+        }
+        return 0;
+    }
+    //endregion
+
+    //region config
+    private static Bitmap.Config config(int pixelFormat) {
+        if (pixelFormat == RawImageFormat.PIXEL_FORMAT_RGB_565) {
+            return Bitmap.Config.RGB_565;
+        }
+        return Bitmap.Config.ARGB_8888;
+    }
+    //endregion
+
+    //region RawBitmapCodec
+    private RawBitmapCodec() { }
+    //endregion
+}
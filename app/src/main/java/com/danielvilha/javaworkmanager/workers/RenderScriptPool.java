@@ -0,0 +1,198 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.renderscript.Allocation;
+import android.renderscript.Element;
+import android.renderscript.RenderScript;
+import android.renderscript.ScriptIntrinsicBlur;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Process wide RenderScript state for the RenderScript blur engine. Creating a context is the
+ * most expensive part of a blur, so a single NORMAL context is kept alive along with the blur
+ * intrinsic and the Allocations of the last image shapes. Everything is released when the
+ * system asks the app to trim its memory.
+ */
+final class RenderScriptPool implements ComponentCallbacks2 {
+
+    //region Variables
+    // Number of image shapes whose Allocations are kept around
+    private static final int MAX_CACHED_SHAPES = 2;
+
+    private static RenderScriptPool sInstance;
+
+    private final Context mApplicationContext;
+    private RenderScript mRenderScript;
+    private ScriptIntrinsicBlur mBlurIntrinsic;
+    private final LinkedHashMap<String, Allocation[]> mAllocations = new LinkedHashMap<>(4, 0.75f, true);
+    //endregion
+
+    //region getInstance
+    static synchronized RenderScriptPool getInstance(@NonNull Context applicationContext) {
+        if (sInstance == null) {
+            sInstance = new RenderScriptPool(applicationContext.getApplicationContext());
+            sInstance.mApplicationContext.registerComponentCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+    //endregion
+
+    //region RenderScriptPool
+    private RenderScriptPool(Context applicationContext) {
+        mApplicationContext = applicationContext;
+    }
+    //endregion
+
+    //region blur
+    /**
+     * Blurs the given Bitmap image with ScriptIntrinsicBlur
+     * @param bitmap Image to blur
+     * @param radius Blur radius in pixels, RenderScript only supports up to 25
+     * @return Blurred bitmap image
+     */
+    @WorkerThread
+    synchronized Bitmap blur(@NonNull Bitmap bitmap, float radius) {
+        SharedBitmapPool pool = SharedBitmapPool.getInstance(mApplicationContext);
+
+        // The intrinsic is created for U8_4, other configs are converted first
+        Bitmap.Config config = bitmap.getConfig();
+        Bitmap converted = null;
+        if (config != Bitmap.Config.ARGB_8888) {
+            converted = bitmap.copy(Bitmap.Config.ARGB_8888, true);
+            bitmap = converted;
+        }
+
+        RenderScript rsContext = renderScript();
+        Allocation[] allocations = allocations(rsContext, bitmap);
+        Allocation inAlloc = allocations[0];
+        Allocation outAlloc = allocations[1];
+
+        // Take the output bitmap from the pool, the blur writes every pixel
+        Bitmap output = pool.getDirty(bitmap.getWidth(), bitmap.getHeight(), Bitmap.Config.ARGB_8888);
+        output.setHasAlpha(bitmap.hasAlpha());
+
+        // Blur the image
+        inAlloc.copyFrom(bitmap);
+        ScriptIntrinsicBlur theIntrinsic = blurIntrinsic(rsContext);
+        theIntrinsic.setRadius(radius);
+        theIntrinsic.setInput(inAlloc);
+        theIntrinsic.forEach(outAlloc);
+        outAlloc.copyTo(output);
+        pool.put(converted);
+
+        // Keep reduced precision images at half the bytes for the next stages
+        if (config == Bitmap.Config.RGB_565) {
+            Bitmap reduced = output.copy(Bitmap.Config.RGB_565, true);
+            pool.put(output);
+            output = reduced;
+        }
+
+        return output;
+    }
+    //endregion
+
+    //region release
+    /**
+     * Destroys every Allocation, the intrinsic and the context. They are created again on the
+     * next blur.
+     */
+    synchronized void release() {
+        for (Allocation[] allocations : mAllocations.values()) {
+            destroy(allocations);
+        }
+        mAllocations.clear();
+
+        if (mBlurIntrinsic != null) {
+            mBlurIntrinsic.destroy();
+            mBlurIntrinsic = null;
+        }
+
+        if (mRenderScript != null) {
+            mRenderScript.destroy();
+            mRenderScript = null;
+        }
+    }
+    //endregion
+
+    //region renderScript
+    private RenderScript renderScript() {
+        if (mRenderScript == null) {
+            mRenderScript = RenderScript.create(mApplicationContext, RenderScript.ContextType.NORMAL);
+        }
+        return mRenderScript;
+    }
+    //endregion
+
+    //region blurIntrinsic
+    private ScriptIntrinsicBlur blurIntrinsic(RenderScript rsContext) {
+        if (mBlurIntrinsic == null) {
+            mBlurIntrinsic = ScriptIntrinsicBlur.create(rsContext, Element.U8_4(rsContext));
+        }
+        return mBlurIntrinsic;
+    }
+    //endregion
+
+    //region allocations
+    /**
+     * Input and output Allocations for images of the same width, height and config as the bitmap
+     */
+    private Allocation[] allocations(RenderScript rsContext, Bitmap bitmap) {
+        String key = bitmap.getWidth() + "x" + bitmap.getHeight() + "-" + bitmap.getConfig();
+
+        Allocation[] allocations = mAllocations.get(key);
+        if (allocations == null) {
+            Allocation inAlloc = Allocation.createFromBitmap(rsContext, bitmap,
+                    Allocation.MipmapControl.MIPMAP_NONE, Allocation.USAGE_SCRIPT);
+            Allocation outAlloc = Allocation.createTyped(rsContext, inAlloc.getType());
+            allocations = new Allocation[] { inAlloc, outAlloc };
+            mAllocations.put(key, allocations);
+
+            // Drop the least recently used shapes
+            Iterator<Map.Entry<String, Allocation[]>> iterator = mAllocations.entrySet().iterator();
+            while (mAllocations.size() > MAX_CACHED_SHAPES && iterator.hasNext()) {
+                destroy(iterator.next().getValue());
+                iterator.remove();
+            }
+        }
+
+        return allocations;
+    }
+    //endregion
+
+    //region destroy
+    private static void destroy(Allocation[] allocations) {
+        for (Allocation allocation : allocations) {
+            allocation.destroy();
+        }
+    }
+    //endregion
+
+    //region ComponentCallbacks2
+    @Override
+    public void onTrimMemory(int level) {
+        // UI_HIDDEN is when the workers usually run, keep the context alive for them
+        if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+            release();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        release();
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) { }
+    //endregion
+}
@@ -1,29 +1,29 @@
 package com.danielvilha.javaworkmanager.workers;
 
-import android.content.ContentResolver;
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
-import android.provider.MediaStore;
 import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.work.Data;
-import androidx.work.Worker;
 import androidx.work.WorkerParameters;
 
 import com.danielvilha.javaworkmanager.Constants;
+import com.danielvilha.javaworkmanager.cache.ResultCache;
+import com.danielvilha.javaworkmanager.metrics.WorkerMetrics;
 
+import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.CancellationException;
 
 /**
  * Created by danielvilha on 2019-08-18
  */
-public class SaveImageToFileWorker extends Worker {
+public class SaveImageToFileWorker extends ExecutorWorker {
 
     //region Variables
     private static final String TAG = SaveImageToFileWorker.class.getSimpleName();
@@ -42,29 +42,73 @@ public class SaveImageToFileWorker extends Worker {
     @Override
     public Result doWork() {
         Context applicationContext = getApplicationContext();
-        ContentResolver resolver = applicationContext.getContentResolver();
-        WorkerUtils.makeStatusNotification("Doing <WORK_NAME>", applicationContext);
-        WorkerUtils.sleep();
+        WorkerMetrics metrics = new WorkerMetrics(TAG);
+
+        // The blur of this image already failed inside a batch, nothing to save
+        if (getInputData().getBoolean(Constants.KEY_FAILED, false)) {
+            return WorkerUtils.failure(getInputData());
+        }
 
         try {
+            WorkerUtils.reportProgress(this, "Saving image", 0, 0, -1);
+            WorkerUtils.sleep(this, metrics);
+
             String resourceUri = getInputData().getString(Constants.KEY_IMAGE_URI);
-            Bitmap bitmap = BitmapFactory.decodeStream(resolver.openInputStream(Uri.parse(resourceUri)));
-            String outputUri = MediaStore.Images.Media.insertImage(resolver, bitmap, TITLE, DATE_FORMATTER.format(new Date()));
+            if (TextUtils.isEmpty(resourceUri)) {
+                Log.e(TAG, "Invalid input uri");
+                throw new IllegalArgumentException("Invalid input uri");
+            }
 
-            if (TextUtils.isEmpty(outputUri)) {
-                Log.e(TAG, "Writing to MediaStore failed");
-                return Result.failure();
+            // The blur may have worked on a smaller copy of the source
+            float imageScale = getInputData().getFloat(Constants.KEY_IMAGE_SCALE, 1f);
+
+            // Written straight into the MediaStore, without decoding the image again
+            String outputUri = MediaStoreWriter.save(applicationContext, Uri.parse(resourceUri), imageScale, TITLE,
+                    DATE_FORMATTER.format(new Date()), OutputSpec.fromData(getInputData()), metrics,
+                    this::isStopped).toString();
+
+            // A blur that traded quality for power must not answer later requests
+            String cacheKey = getInputData().getString(Constants.KEY_CACHE_KEY);
+            if (cacheKey != null && !getInputData().getBoolean(Constants.KEY_POWER_DEGRADED, false)) {
+                cacheResult(cacheKey, Uri.parse(resourceUri), imageScale, Uri.parse(outputUri));
             }
 
+            WorkerUtils.reportProgress(this, "Image saved", 0, 0, 100);
+
             Data outputData = new Data.Builder()
                     .putString(Constants.KEY_IMAGE_URI, outputUri)
+                    .putAll(WorkerUtils.publishMetrics(this, metrics))
                     .build();
 
             return Result.success(outputData);
+        } catch (CancellationException exception) {
+            // Stopped, WorkManager ignores the result
+            Log.i(TAG, "Save stopped");
+            return Result.failure();
         } catch (Exception exception) {
             Log.e(TAG, "Unable to save image to Gallery", exception);
 
-            return Worker.Result.failure();
+            return WorkerUtils.failure(getInputData());
+        }
+    }
+    //endregion
+
+    //region cacheResult
+    /**
+     * Records the blurred image and where it was saved in the ResultCache
+     */
+    private void cacheResult(String cacheKey, Uri resultUri, float scale, Uri savedUri) {
+        if (!"file".equals(resultUri.getScheme())) {
+            return;
+        }
+
+        try {
+            // The file is moved into the cache, it must be complete
+            IntermediateStore.getInstance().awaitWrite(resultUri);
+            ResultCache.getInstance(getApplicationContext()).put(cacheKey, new File(resultUri.getPath()), scale,
+                    savedUri);
+        } catch (IOException exception) {
+            Log.e(TAG, "Unable to cache " + resultUri, exception);
         }
     }
     //endregion
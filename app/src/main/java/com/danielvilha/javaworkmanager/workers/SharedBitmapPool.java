@@ -0,0 +1,87 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.engine.bitmap_recycle.BitmapPool;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Bitmaps of the workers come from, and go back to, the size bucketed LruBitmapPool Glide sets
+ * up for the previews, so decodes, blur outputs and intermediates of one image reuse the memory
+ * of the previous one instead of churning through the native heap. BlurGlideModule sizes the
+ * pool for them.
+ *
+ * Glide trims its pool from its own ComponentCallbacks, this class trims the bitmaps the
+ * IntermediateStore keeps in memory.
+ */
+final class SharedBitmapPool implements ComponentCallbacks2 {
+
+    //region Variables
+    private static SharedBitmapPool sInstance;
+
+    private final BitmapPool mPool;
+    //endregion
+
+    //region getInstance
+    static synchronized SharedBitmapPool getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            Context applicationContext = context.getApplicationContext();
+            sInstance = new SharedBitmapPool(Glide.get(applicationContext).getBitmapPool());
+            applicationContext.registerComponentCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+    //endregion
+
+    //region SharedBitmapPool
+    private SharedBitmapPool(BitmapPool pool) {
+        mPool = pool;
+    }
+    //endregion
+
+    //region getDirty
+    /**
+     * @return A mutable bitmap of exactly this size and config, its pixels are undefined and
+     * must all be written
+     */
+    @NonNull
+    Bitmap getDirty(int width, int height, @NonNull Bitmap.Config config) {
+        return mPool.getDirty(width, height, config);
+    }
+    //endregion
+
+    //region put
+    /**
+     * Hands a bitmap nobody references anymore back to the pool
+     * @param bitmap Bitmap to reuse, or null
+     */
+    void put(@Nullable Bitmap bitmap) {
+        if (bitmap != null && bitmap.isMutable() && !bitmap.isRecycled()) {
+            mPool.put(bitmap);
+        }
+    }
+    //endregion
+
+    //region onTrimMemory
+    @Override
+    public void onTrimMemory(int level) {
+        IntermediateStore.getInstance().trimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        IntermediateStore.getInstance().trimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) { }
+    //endregion
+}
@@ -0,0 +1,210 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+
+import com.danielvilha.javaworkmanager.Constants;
+import com.danielvilha.javaworkmanager.R;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static com.danielvilha.javaworkmanager.Constants.CHANNEL_ID;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Posts the status notifications of the work chains. Only one chain and one batch run at a
+ * time, so the current chain updates the NOTIFICATION_ID notification in place and the current
+ * batch the BATCH_NOTIFICATION_ID one. A new chain takes the notification over from the one it
+ * replaced, nothing is left behind. Updates are coalesced and posted at most once every
+ * NOTIFICATION_MIN_INTERVAL_MILLIS per chain, so fast or batched workers don't flood the
+ * NotificationManager with binder calls.
+ */
+final class StatusNotifier {
+
+    //region Variables
+    // Chains not updated for this long are forgotten
+    private static final long STALE_CHAIN_MILLIS = 60 * 1000;
+
+    private static StatusNotifier sInstance;
+
+    private final Context mApplicationContext;
+    private final Handler mHandler;
+    private final Map<String, ChainStatus> mChains = new HashMap<>();
+    //endregion
+
+    //region ChainStatus
+    /**
+     * Last status of a chain, waiting to be posted
+     */
+    private static final class ChainStatus {
+        final int notificationId;
+        String message;
+        int pass;
+        int passCount;
+        int percent;
+        long lastPostTime;
+        boolean scheduled;
+
+        ChainStatus(int notificationId) {
+            this.notificationId = notificationId;
+        }
+    }
+    //endregion
+
+    //region getInstance
+    static synchronized StatusNotifier getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new StatusNotifier(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+    //endregion
+
+    //region StatusNotifier
+    private StatusNotifier(Context applicationContext) {
+        mApplicationContext = applicationContext;
+        createChannel(applicationContext);
+
+        HandlerThread thread = new HandlerThread(StatusNotifier.class.getSimpleName());
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+    }
+    //endregion
+
+    //region post
+    /**
+     * Updates the notification of a chain. The update is posted right away unless the chain was
+     * updated less than NOTIFICATION_MIN_INTERVAL_MILLIS ago, then only the last update is.
+     * @param chainKey Key of the chain, updates with the same key share the same notification
+     * @param message Message shown on the notification
+     * @param pass Current pass, starting at 1, or 0 if unknown
+     * @param passCount Number of passes of the chain, or 0 if unknown
+     * @param percent Progress of the current pass, or -1 if unknown
+     */
+    void post(@NonNull String chainKey, @NonNull String message, int pass, int passCount, int percent) {
+        long now = SystemClock.uptimeMillis();
+
+        synchronized (mChains) {
+            ChainStatus status = mChains.get(chainKey);
+            if (status == null) {
+                pruneStaleChains(now);
+                status = new ChainStatus(notificationId(chainKey));
+                takeOver(status.notificationId);
+                mChains.put(chainKey, status);
+            }
+
+            status.message = message;
+            status.pass = pass;
+            status.passCount = passCount;
+            status.percent = percent;
+
+            if (!status.scheduled) {
+                status.scheduled = true;
+                long delay = Math.max(0, status.lastPostTime + Constants.NOTIFICATION_MIN_INTERVAL_MILLIS - now);
+                mHandler.postDelayed(() -> flush(chainKey), delay);
+            }
+        }
+    }
+    //endregion
+
+    //region flush
+    private void flush(String chainKey) {
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(mApplicationContext, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentTitle(Constants.NOTIFICATION_TITLE)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setOnlyAlertOnce(true)
+                .setVibrate(new long[0]);
+
+        int notificationId;
+        synchronized (mChains) {
+            ChainStatus status = mChains.get(chainKey);
+            if (status == null) {
+                return;
+            }
+
+            status.scheduled = false;
+            status.lastPostTime = SystemClock.uptimeMillis();
+            notificationId = status.notificationId;
+
+            builder.setContentText(status.message)
+                    .setProgress(100, Math.max(0, status.percent), status.percent < 0);
+            if (status.passCount > 0) {
+                builder.setSubText(String.format("Pass %s of %s", status.pass, status.passCount));
+            }
+        }
+
+        // Show the notification
+        NotificationManagerCompat.from(mApplicationContext).notify(notificationId, builder.build());
+    }
+    //endregion
+
+    //region notificationId
+    private static int notificationId(String chainKey) {
+        return chainKey.startsWith(Constants.TAG_BATCH_PREFIX)
+                ? Constants.BATCH_NOTIFICATION_ID : Constants.NOTIFICATION_ID;
+    }
+    //endregion
+
+    //region takeOver
+    /**
+     * Forgets the chains posting to the notification, their pending updates are dropped
+     */
+    private void takeOver(int notificationId) {
+        Iterator<ChainStatus> iterator = mChains.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().notificationId == notificationId) {
+                iterator.remove();
+            }
+        }
+    }
+    //endregion
+
+    //region pruneStaleChains
+    private void pruneStaleChains(long now) {
+        Iterator<ChainStatus> iterator = mChains.values().iterator();
+        while (iterator.hasNext()) {
+            ChainStatus status = iterator.next();
+            if (!status.scheduled && now - status.lastPostTime > STALE_CHAIN_MILLIS) {
+                iterator.remove();
+            }
+        }
+    }
+    //endregion
+
+    //region createChannel
+    private static void createChannel(Context context) {
+        // Make a channel if necessary
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            // Create the NotificationChannel, but only on API 26+ because
+            // the NotificationChannel class is new and not in the support library
+            CharSequence name = Constants.VERBOSE_NOTIFICATION_CHANNEL_NAME;
+            String description = Constants.VERBOSE_NOTIFICATION_CHANNEL_DESCRIPTION;
+            int importance = NotificationManager.IMPORTANCE_HIGH;
+            NotificationChannel channel =
+                    new NotificationChannel(CHANNEL_ID, name, importance);
+            channel.setDescription(description);
+
+            // Add the channel
+            NotificationManager notificationManager =
+                    (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+
+            if (notificationManager != null) {
+                notificationManager.createNotificationChannel(channel);
+            }
+        }
+    }
+    //endregion
+}
@@ -0,0 +1,237 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.danielvilha.javaworkmanager.Constants;
+import com.danielvilha.javaworkmanager.imaging.Cancellation;
+import com.danielvilha.javaworkmanager.imaging.PixelBuffer;
+import com.danielvilha.javaworkmanager.imaging.PngWriter;
+import com.danielvilha.javaworkmanager.metrics.WorkerMetrics;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Bounded memory blur for images too large to be held in memory at once. The image is read in
+ * horizontal strips through BitmapRegionDecoder, each strip extended by a halo of the blur
+ * support above and below, blurred, and its rows streamed straight to a PNG file. Peak memory
+ * depends on the strip height and not on the image height.
+ *
+ * Opaque images skip the alpha channel in the blur and are written as 3 channel PNGs, at reduced
+ * precision their strips are also decoded as RGB_565.
+ *
+ * Strips of the same region size are decoded into the bitmap of the previous one, and the last
+ * strip goes back to the SharedBitmapPool.
+ */
+final class TiledBlur {
+
+    //region Variables
+    // Size of the buffer between the encoder and the file
+    private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+    //endregion
+
+    //region StripListener
+    /**
+     * Notified every time a strip has been written
+     */
+    interface StripListener {
+        void onStripDone(int done, int total);
+    }
+    //endregion
+
+    //region shouldTile
+    /**
+     * Whether the image is too large to be blurred in one piece. Images already held by the
+     * IntermediateStore are always blurred in one piece.
+     * @param applicationContext Application context
+     * @param uri Uri of the image
+     * @param radius Blur radius, in pixels of the image
+     * @param reducedPrecision True if opaque images are decoded as RGB_565
+     * @param mode Mode the blur runs in
+     * @return True if the image should go through
+     * {@link #blur(Context, Uri, float, boolean, ExecutionMode, File, StripListener, Cancellation)}
+     * @throws IOException Throws if the image cannot be read
+     */
+    @WorkerThread
+    static boolean shouldTile(@NonNull Context applicationContext, @NonNull Uri uri, float radius,
+                              boolean reducedPrecision, @NonNull ExecutionMode mode) throws IOException {
+        IntermediateStore store = IntermediateStore.getInstance();
+        if (store.get(uri) != null) {
+            return false;
+        }
+        store.awaitWrite(uri);
+
+        // Raw intermediates always come from a bitmap that fit in memory
+        if (RawBitmapCodec.isRawImage(uri)) {
+            return false;
+        }
+
+        BitmapFactory.Options bounds = BitmapDecoder.readBounds(applicationContext.getContentResolver(), uri);
+        float scale = BitmapDecoder.targetScale(bounds.outWidth, bounds.outHeight, radius, mode);
+        int bytesPerPixel = reducedPrecision && BitmapDecoder.isOpaqueFormat(bounds) ? 2 : 4;
+        double bytes = (double) bytesPerPixel * bounds.outWidth * bounds.outHeight * scale * scale;
+        return bytes > Constants.TILED_BLUR_MIN_BYTES;
+    }
+    //endregion
+
+    //region blur
+    /**
+     * Blurs the image strip by strip and writes the result as a PNG file
+     * @param applicationContext Application context
+     * @param uri Uri of the image
+     * @param radius Blur radius, in pixels of the image
+     * @param reducedPrecision True to decode the strips of opaque images as RGB_565
+     * @param mode Mode the blur runs in
+     * @param outputFile File the blurred image is written to
+     * @param metrics Records the strips and their planes
+     * @param listener Notified of the progress
+     * @param cancellation Polled between strips and while blurring and encoding them
+     * @return Scale of the output relative to the input image
+     * @throws IOException Throws if the image cannot be read or the output written
+     * @throws java.util.concurrent.CancellationException Throws if cancelled, the output file is then deleted
+     */
+    @WorkerThread
+    static float blur(@NonNull Context applicationContext, @NonNull Uri uri, float radius, boolean reducedPrecision,
+                      @NonNull ExecutionMode mode, @NonNull File outputFile, @NonNull WorkerMetrics metrics,
+                      @NonNull StripListener listener, @NonNull Cancellation cancellation) throws IOException {
+        OutputStore.touch(uri);
+
+        ContentResolver resolver = applicationContext.getContentResolver();
+        BitmapRegionDecoder decoder;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            decoder = BitmapRegionDecoder.newInstance(in, false);
+        }
+
+        try {
+            int width = decoder.getWidth();
+            int height = decoder.getHeight();
+
+            // Strips are decoded at the same scale as a full decode would have been
+            int sampleSize = BitmapDecoder.sampleSize(BitmapDecoder.targetScale(width, height, radius, mode));
+            float workRadius = radius / sampleSize;
+            int halo = WorkerUtils.blurSupport(workRadius, mode);
+            int outHeight = (height + sampleSize - 1) / sampleSize;
+            int stripCount = (outHeight + Constants.TILE_STRIP_ROWS - 1) / Constants.TILE_STRIP_ROWS;
+
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = sampleSize;
+            options.inMutable = true;
+            if (reducedPrecision) {
+                // Only honoured for opaque images
+                options.inPreferredConfig = Bitmap.Config.RGB_565;
+            }
+
+            ForkJoinPool pool = mode.pool(applicationContext);
+            SharedBitmapPool bitmapPool = SharedBitmapPool.getInstance(applicationContext);
+
+            PngWriter writer = null;
+            boolean written = false;
+            int outWidth = 0;
+            PixelBuffer pixels = null;
+            Bitmap strip = null;
+            Rect previous = null;
+
+            try {
+                for (int y = 0; y < outHeight; y += Constants.TILE_STRIP_ROWS) {
+                    cancellation.throwIfCancelled();
+                    int rows = Math.min(Constants.TILE_STRIP_ROWS, outHeight - y);
+                    int top = Math.max(0, y - halo);
+                    int bottom = Math.min(outHeight, y + rows + halo);
+
+                    Rect region = new Rect(0, top * sampleSize, width, Math.min(height, bottom * sampleSize));
+
+                    // A region of the same size decodes to a bitmap of the same size, other sizes
+                    // get a new bitmap since a larger inBitmap would keep its own size
+                    if (previous != null && previous.height() == region.height()) {
+                        options.inBitmap = strip;
+                    } else {
+                        metrics.releaseBitmap(strip);
+                        bitmapPool.put(strip);
+                        strip = null;
+                        options.inBitmap = null;
+                    }
+                    strip = decoder.decodeRegion(region, options);
+                    previous = region;
+                    if (strip == null) {
+                        throw new IOException("Unable to decode " + region + " of " + uri);
+                    }
+                    if (options.inBitmap == null) {
+                        metrics.allocateBitmap(strip);
+                    }
+
+                    // Strips reuse the planes of the previous one when they fit
+                    int stripHeight = strip.getHeight();
+                    PixelBuffer reused = pixels;
+                    pixels = BitmapPixels.read(strip, reused);
+                    if (pixels != reused) {
+                        if (reused != null) {
+                            metrics.releasePixels(reused.byteCount());
+                        }
+                        metrics.allocatePixels(pixels.byteCount());
+                    }
+
+                    WorkerUtils.blurBuffer(pixels, workRadius, mode, pool, cancellation, metrics);
+
+                    if (writer == null) {
+                        outWidth = pixels.width();
+                        writer = new PngWriter(
+                                new BufferedOutputStream(new FileOutputStream(outputFile), OUTPUT_BUFFER_SIZE),
+                                outWidth, outHeight, !pixels.isOpaque(), Deflater.BEST_SPEED, pool, cancellation);
+                    }
+
+                    // Skip the halo, the decoder may round the last strip one row short
+                    for (int row = 0; row < rows; row++) {
+                        int stripRow = Math.min(y + row - top, stripHeight - 1);
+                        writer.writeRows(pixels, stripRow, 1);
+                    }
+
+                    listener.onStripDone(y / Constants.TILE_STRIP_ROWS + 1, stripCount);
+                }
+
+                writer.close();
+                written = true;
+            } finally {
+                if (!written) {
+                    // Don't leave a truncated image behind
+                    if (writer != null) {
+                        try {
+                            writer.close();
+                        } catch (IOException ignore) {
+                        }
+                    }
+                    outputFile.delete();
+                }
+                metrics.releaseBitmap(strip);
+                bitmapPool.put(strip);
+                if (pixels != null) {
+                    metrics.releasePixels(pixels.byteCount());
+                }
+            }
+
+            return (float) outWidth / width;
+        } finally {
+            decoder.recycle();
+        }
+    }
+    //endregion
+
+    //region TiledBlur
+    private TiledBlur() { }
+    //endregion
+}
@@ -0,0 +1,114 @@
+package com.danielvilha.javaworkmanager.workers;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import androidx.annotation.NonNull;
+
+import com.danielvilha.javaworkmanager.R;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * The pools the work runs on. Workers run on the IO pool, where they may block on decoding,
+ * files and the MediaStore; the pixel kernels run on the CPU pool, which only ever computes, so
+ * waits of busy workers never take threads away from the blur.
+ *
+ * BlurWorkers wait on the kernels for as long as the blur lasts, so they get a pool of their own:
+ * a batch of long blurs never holds every IO thread while hashing and saves wait behind it.
+ *
+ * Pool sizes come from the cpu_pool_size, io_pool_size and blur_pool_size resources. Blurs limited
+ * to fewer threads, see ExecutionMode, get a smaller CPU pool of their own.
+ */
+public final class WorkExecutors {
+
+    //region Variables
+    private static WorkExecutors sInstance;
+
+    private final ForkJoinPool mCpu;
+    private final Map<Integer, ForkJoinPool> mLimitedCpu = new ConcurrentHashMap<>();
+    private final ExecutorService mIo;
+    private final ExecutorService mBlur;
+    //endregion
+
+    //region getInstance
+    public static synchronized WorkExecutors getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new WorkExecutors(context.getApplicationContext().getResources());
+        }
+        return sInstance;
+    }
+    //endregion
+
+    //region WorkExecutors
+    private WorkExecutors(Resources resources) {
+        int cpuThreads = resources.getInteger(R.integer.cpu_pool_size);
+        if (cpuThreads <= 0) {
+            cpuThreads = Runtime.getRuntime().availableProcessors();
+        }
+        int ioThreads = Math.max(1, resources.getInteger(R.integer.io_pool_size));
+        int blurThreads = Math.max(1, resources.getInteger(R.integer.blur_pool_size));
+
+        mCpu = new ForkJoinPool(cpuThreads);
+        mIo = Executors.newFixedThreadPool(ioThreads, new NamedThreadFactory("work-io-"));
+        mBlur = Executors.newFixedThreadPool(blurThreads, new NamedThreadFactory("work-blur-"));
+    }
+    //endregion
+
+    //region cpu
+    /**
+     * @return Pool of the pixel kernels, never block on it
+     */
+    public ForkJoinPool cpu() { return mCpu; }
+
+    /**
+     * @param parallelism Largest number of threads the kernels may use
+     * @return Pool of the pixel kernels running on at most that many threads, never block on it
+     */
+    public ForkJoinPool cpu(int parallelism) {
+        if (parallelism >= mCpu.getParallelism()) {
+            return mCpu;
+        }
+        return mLimitedCpu.computeIfAbsent(Math.max(1, parallelism), ForkJoinPool::new);
+    }
+    //endregion
+
+    //region io
+    /**
+     * @return Pool the workers run on
+     */
+    public ExecutorService io() { return mIo; }
+    //endregion
+
+    //region blur
+    /**
+     * @return Pool the BlurWorkers run on, blocked on the CPU pool while they blur
+     */
+    public ExecutorService blur() { return mBlur; }
+    //endregion
+
+    //region NamedThreadFactory
+    private static final class NamedThreadFactory implements ThreadFactory {
+
+        private final String mPrefix;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            mPrefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(runnable, mPrefix + mCount.incrementAndGet());
+        }
+    }
+    //endregion
+}
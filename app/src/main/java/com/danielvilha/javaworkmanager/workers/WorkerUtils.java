@@ -1,32 +1,27 @@
 package com.danielvilha.javaworkmanager.workers;
 
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.net.Uri;
-import android.os.Build;
-import android.renderscript.Allocation;
-import android.renderscript.Element;
-import android.renderscript.RenderScript;
-import android.renderscript.ScriptIntrinsicBlur;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.WorkerThread;
-import androidx.core.app.NotificationCompat;
-import androidx.core.app.NotificationManagerCompat;
+import androidx.work.Data;
+import androidx.work.ListenableWorker;
 
 import com.danielvilha.javaworkmanager.Constants;
-import com.danielvilha.javaworkmanager.R;
+import com.danielvilha.javaworkmanager.imaging.BoxBlur;
+import com.danielvilha.javaworkmanager.imaging.Cancellation;
+import com.danielvilha.javaworkmanager.imaging.GaussianBlur;
+import com.danielvilha.javaworkmanager.imaging.PixelBuffer;
+import com.danielvilha.javaworkmanager.metrics.MetricsRegistry;
+import com.danielvilha.javaworkmanager.metrics.WorkerMetrics;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
 
-import static com.danielvilha.javaworkmanager.Constants.CHANNEL_ID;
 import static com.danielvilha.javaworkmanager.Constants.DELAY_TIME_MILLIS;
 
 /**
@@ -36,132 +31,218 @@ class WorkerUtils {
 
     //region Variables
     private static final String TAG = WorkerUtils.class.getSimpleName();
+
+    // Longest a sleeping worker takes to notice it was stopped
+    private static final long SLEEP_SLICE_MILLIS = 50;
     //endregion
 
-    //region makeStatusNotification
+    //region reportProgress
     /**
-     * Create a Notification that is shown as a heads-up notification if possible.
+     * Publishes the progress of the worker through setProgressAsync and updates the status
+     * notification of its chain.
      *
-     * For this codelab, this is used to show a notification so that you know when different steps
-     * of the background work chain are starting
+     * For this codelab, the notification is used so that you know when different steps of the
+     * background work chain are starting
      *
+     * @param worker Worker reporting its progress
      * @param message Message shown on the notification
-     * @param context Context needed to create Toast
+     * @param pass Current pass, starting at 1, or 0 if the worker is not a blur pass
+     * @param passCount Number of blur passes of the chain, or 0 if unknown
+     * @param percent Progress of the worker, or -1 if unknown
      */
-    static void makeStatusNotification(String message, Context context) {
-
-        // Make a channel if necessary
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            // Create the NotificationChannel, but only on API 26+ because
-            // the NotificationChannel class is new and not in the support library
-            CharSequence name = Constants.VERBOSE_NOTIFICATION_CHANNEL_NAME;
-            String description = Constants.VERBOSE_NOTIFICATION_CHANNEL_DESCRIPTION;
-            int importance = NotificationManager.IMPORTANCE_HIGH;
-            NotificationChannel channel =
-                    new NotificationChannel(CHANNEL_ID, name, importance);
-            channel.setDescription(description);
-
-            // Add the channel
-            NotificationManager notificationManager =
-                    (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-
-            if (notificationManager != null) {
-                notificationManager.createNotificationChannel(channel);
-            }
+    static void reportProgress(@NonNull ListenableWorker worker, @NonNull String message, int pass, int passCount, int percent) {
+        worker.setProgressAsync(new Data.Builder()
+                .putInt(Constants.KEY_PROGRESS_PASS, pass)
+                .putInt(Constants.KEY_PROGRESS_PASS_COUNT, passCount)
+                .putInt(Constants.KEY_PROGRESS_PERCENT, percent)
+                .build());
+
+        // A replaced chain must not take the notification back from the chain replacing it
+        if (!worker.isStopped()) {
+            StatusNotifier.getInstance(worker.getApplicationContext())
+                    .post(chainKey(worker), message, pass, passCount, percent);
         }
+    }
+    //endregion
 
-        // Create the notification
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
-                .setSmallIcon(R.drawable.ic_launcher_foreground)
-                .setContentTitle(Constants.NOTIFICATION_TITLE)
-                .setContentText(message)
-                .setPriority(NotificationCompat.PRIORITY_HIGH)
-                .setVibrate(new long[0]);
+    //region chainKey
+    /**
+     * @param worker A worker
+     * @return Key shared by all the workers of the same chain, or batch
+     */
+    static String chainKey(@NonNull ListenableWorker worker) {
+        for (String tag : worker.getTags()) {
+            if (tag.startsWith(Constants.TAG_CHAIN_PREFIX) || tag.startsWith(Constants.TAG_BATCH_PREFIX)) {
+                return tag;
+            }
+        }
+        return worker.getId().toString();
+    }
+    //endregion
 
-        // Show the notification
-        NotificationManagerCompat.from(context).notify(Constants.NOTIFICATION_ID, builder.build());
+    //region failure
+    /**
+     * Result of a worker that failed. Inside a batch, images queued behind the failed one must
+     * still be processed, so the failure is reported through KEY_FAILED instead.
+     * @param inputData Input data of the worker
+     * @return Result to return from doWork
+     */
+    static ListenableWorker.Result failure(@NonNull Data inputData) {
+        if (inputData.getString(Constants.KEY_BATCH_TAG) != null) {
+            return ListenableWorker.Result.success(new Data.Builder()
+                    .putBoolean(Constants.KEY_FAILED, true)
+                    .build());
+        }
+        return ListenableWorker.Result.failure();
     }
     //endregion
 
     //region sleep
     /**
-     * Method for sleeping for a fixed about of time to emulate slower work
+     * Method for sleeping for a fixed about of time to emulate slower work. The sleep is cut in
+     * short slices so a stopped worker wakes up right away.
+     * @param worker Worker sleeping
+     * @param metrics Metrics the sleep is recorded in
+     * @throws CancellationException Throws if the worker is stopped
      */
-    static void sleep() {
-        try {
-            Thread.sleep(DELAY_TIME_MILLIS, 0);
+    static void sleep(@NonNull ListenableWorker worker, @NonNull WorkerMetrics metrics) {
+        try (WorkerMetrics.Stage stage = metrics.stage(WorkerMetrics.STAGE_SLEEP)) {
+            for (long slept = 0; slept < DELAY_TIME_MILLIS; slept += SLEEP_SLICE_MILLIS) {
+                throwIfStopped(worker);
+                Thread.sleep(Math.min(SLEEP_SLICE_MILLIS, DELAY_TIME_MILLIS - slept), 0);
+            }
         } catch (InterruptedException e) {
             Log.d(TAG, e.getMessage());
         }
+        throwIfStopped(worker);
+    }
+    //endregion
+
+    //region throwIfStopped
+    /**
+     * @param worker A worker
+     * @throws CancellationException Throws if the worker is stopped
+     */
+    static void throwIfStopped(@NonNull ListenableWorker worker) {
+        if (worker.isStopped()) {
+            throw new CancellationException(worker.getClass().getSimpleName() + " stopped");
+        }
+    }
+    //endregion
+
+    //region publishMetrics
+    /**
+     * Records the metrics of the worker in the MetricsRegistry
+     * @param worker Worker that recorded the metrics
+     * @param metrics Metrics of the worker
+     * @return The metrics, to be added to the output Data of the worker
+     */
+    static Data publishMetrics(@NonNull ListenableWorker worker, @NonNull WorkerMetrics metrics) {
+        MetricsRegistry.getInstance().record(chainKey(worker), metrics);
+        return metrics.toData();
     }
     //endregion
 
     //region blurBitmap
     /**
-     * Blurs the given Bitmap image
+     * Blurs the given Bitmap image with the pure Java engine. Opaque images skip the alpha channel,
+     * and RGB_565 images stay RGB_565.
      * @param bitmap Image to blur
-     * @param applicationContext Application context
+     * @param radius Blur radius in pixels
+     * @param mode Mode the blur runs in
+     * @param pool Pool the blur runs on
+     * @param bitmapPool Pool the output bitmap is taken from
+     * @param cancellation Polled while blurring
+     * @param metrics Records the planes and the output bitmap
      * @return Blurred bitmap image
+     * @throws CancellationException Throws if cancelled
      */
     @WorkerThread
-    static Bitmap blurBitmap(@NonNull Bitmap bitmap, @NonNull Context applicationContext) {
-        RenderScript rsContext = null;
+    static Bitmap blurBitmap(@NonNull Bitmap bitmap, float radius, @NonNull ExecutionMode mode,
+                             @NonNull ForkJoinPool pool, @NonNull SharedBitmapPool bitmapPool,
+                             @NonNull Cancellation cancellation, @NonNull WorkerMetrics metrics) {
+        PixelBuffer pixels = BitmapPixels.read(bitmap, null);
+        metrics.allocatePixels(pixels.byteCount());
 
         try {
-            // Create the output bitmap
-            Bitmap output = Bitmap.createBitmap(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
-
-            // Blur the image
-            rsContext = RenderScript.create(applicationContext, RenderScript.ContextType.DEBUG);
-            Allocation inAlloc = Allocation.createFromBitmap(rsContext, bitmap);
-            Allocation outAlloc = Allocation.createTyped(rsContext, inAlloc.getType());
-            ScriptIntrinsicBlur theIntrinsic = ScriptIntrinsicBlur.create(rsContext, Element.U8_4(rsContext));
-            theIntrinsic.setRadius(10.f);
-            theIntrinsic.setInput(inAlloc);
-            theIntrinsic.forEach(outAlloc);
-            outAlloc.copyTo(output);
+            // Blur the image in place
+            blurBuffer(pixels, radius, mode, pool, cancellation, metrics);
 
+            // Create the output bitmap
+            Bitmap.Config config = bitmap.getConfig() == Bitmap.Config.RGB_565
+                    ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+            Bitmap output = BitmapPixels.write(pixels, config, bitmapPool);
+            metrics.allocateBitmap(output);
             return output;
         } finally {
-            if (rsContext != null) {
-                rsContext.finish();
-            }
+            metrics.releasePixels(pixels.byteCount());
         }
     }
     //endregion
 
-    //region writeBitmapToFile
+    //region blurBuffer
     /**
-     * Writes bitmap to a temporary file and returns the Uri for the file
-     * @param applicationContext Application context
-     * @param bitmap Bitmap to write to temp file
-     * @return Uri for temp file with bitmap
-     * @throws FileNotFoundException Throws if bitmap file cannot be found
+     * Blurs the pixels in place, with the exact Gaussian up to the boxBlurMinRadius of the mode
+     * and with the box blur, whose cost doesn't depend on the radius, above it
+     * @param metrics Records the scratch plane of the blur
+     * @throws CancellationException Throws if cancelled
      */
-    static Uri writeBitmapToFile(@NonNull Context applicationContext, @NonNull Bitmap bitmap) throws FileNotFoundException {
-        String name = String.format("blur-filter-output-%s.png", UUID.randomUUID().toString());
-        File outputDir = new File(applicationContext.getFilesDir(), Constants.OUTPUT_PATH);
-
-        if (!outputDir.exists()) {
-            outputDir.mkdirs(); // should succeed
-        }
-
-        File outputFile = new File(outputDir, name);
-        FileOutputStream out = null;
+    static void blurBuffer(@NonNull PixelBuffer pixels, float radius, @NonNull ExecutionMode mode,
+                           @NonNull ForkJoinPool pool, @NonNull Cancellation cancellation,
+                           @NonNull WorkerMetrics metrics) {
+        // Both blurs go through one scratch plane the size of the image
+        long scratchBytes = (long) pixels.width() * pixels.height() * Short.BYTES;
+        metrics.allocatePixels(scratchBytes);
 
         try {
-            out = new FileOutputStream(outputFile);
-            bitmap.compress(Bitmap.CompressFormat.PNG, 0 /* ignored for PNG */, out);
-        } finally {
-            if (out != null) {
-                try {
-                    out.close();
-                } catch (IOException ignore) {
-                }
+            if (radius > mode.boxBlurMinRadius) {
+                BoxBlur.blur(pixels, pixels, radius, pool, cancellation);
+            } else {
+                GaussianBlur.blur(pixels, pixels, radius, pool, cancellation);
             }
+        } finally {
+            metrics.releasePixels(scratchBytes);
         }
+    }
+    //endregion
 
-        return Uri.fromFile(outputFile);
+    //region blurSupport
+    /**
+     * @param radius Blur radius in pixels
+     * @param mode Mode the blur runs in
+     * @return Distance a pixel spreads to once blurred by {@link #blurBuffer}
+     */
+    static int blurSupport(float radius, @NonNull ExecutionMode mode) {
+        if (radius > mode.boxBlurMinRadius) {
+            return BoxBlur.support(radius);
+        }
+        return (int) Math.ceil(radius);
+    }
+    //endregion
+
+    //region blurBitmapWithRenderScript
+    /**
+     * Blurs the given Bitmap image with ScriptIntrinsicBlur
+     * @param bitmap Image to blur
+     * @param radius Blur radius in pixels, RenderScript only supports up to 25
+     * @param applicationContext Application context
+     * @return Blurred bitmap image
+     */
+    @WorkerThread
+    static Bitmap blurBitmapWithRenderScript(@NonNull Bitmap bitmap, float radius, @NonNull Context applicationContext) {
+        return RenderScriptPool.getInstance(applicationContext).blur(bitmap, radius);
+    }
+    //endregion
+
+    //region createOutputFile
+    /**
+     * Creates a new temporary file in the OutputStore, owned by the chain of the worker
+     * @param worker Worker creating the file
+     * @param extension Extension of the file name
+     * @return The new file, not written yet
+     */
+    static File createOutputFile(@NonNull ListenableWorker worker, @NonNull String extension) {
+        return OutputStore.createFile(worker.getApplicationContext(), chainKey(worker), extension);
     }
     //endregion
 
@@ -0,0 +1,39 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import java.util.Random;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Test images shared by the benchmarks
+ */
+final class BenchmarkImages {
+
+    //region photo
+    /**
+     * Creates an opaque image with smooth gradients and some noise, closer to a photo than pure
+     * noise, which matters for the encoders
+     * @param width Image width
+     * @param height Image height
+     * @return Packed ARGB pixels
+     */
+    static int[] photo(int width, int height) {
+        Random random = new Random(42);
+        int[] pixels = new int[width * height];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(16)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(16)) & 0xFF;
+                int b = ((x + y) * 127 / (width + height) + random.nextInt(16)) & 0xFF;
+                pixels[y * width + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return pixels;
+    }
+    //endregion
+
+    //region BenchmarkImages
+    private BenchmarkImages() { }
+    //endregion
+}
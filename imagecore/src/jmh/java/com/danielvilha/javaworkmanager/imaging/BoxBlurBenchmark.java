@@ -0,0 +1,70 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Time of a full box blur of a square image, across image sizes, radii, pool sizes and opaque
+ * or translucent images. Compare with GaussianBlurBenchmark, the time here should not grow with the radius.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BoxBlurBenchmark {
+
+    //region Variables
+    @Param({ "512", "1024", "2048", "4096" })
+    public int size;
+
+    @Param({ "10", "25", "50", "100", "200" })
+    public float radius;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    @Param({ "false", "true" })
+    public boolean opaque;
+
+    private PixelBuffer mSrcBuffer;
+    private PixelBuffer mDstBuffer;
+    private ForkJoinPool mPool;
+    //endregion
+
+    //region setUp
+    @Setup(Level.Trial)
+    public void setUp() {
+        mSrcBuffer = new PixelBuffer(size, size, opaque);
+        mSrcBuffer.copyFromArgb(BenchmarkImages.photo(size, size), 0, size, 0, size);
+        mDstBuffer = new PixelBuffer(size, size, opaque);
+        mPool = new ForkJoinPool(threads);
+    }
+    //endregion
+
+    //region tearDown
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mPool.shutdown();
+    }
+    //endregion
+
+    //region blur
+    @Benchmark
+    public PixelBuffer blur() {
+        BoxBlur.blur(mSrcBuffer, mDstBuffer, radius, mPool, Cancellation.NONE);
+        return mDstBuffer;
+    }
+    //endregion
+}
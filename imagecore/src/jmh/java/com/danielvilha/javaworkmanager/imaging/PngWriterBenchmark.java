@@ -0,0 +1,88 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Time to encode a whole image as PNG, across image sizes, compression levels and deflate
+ * threads, 0 deflating on the calling thread. The output is only counted, so the numbers don't
+ * include any IO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PngWriterBenchmark {
+
+    //region Variables
+    @Param({ "512", "1024", "2048", "4096" })
+    public int size;
+
+    @Param({ "1", "6" })
+    public int level;
+
+    @Param({ "0", "2", "4", "8" })
+    public int threads;
+
+    private int[] mPixels;
+    private ForkJoinPool mPool;
+    //endregion
+
+    //region CountingOutputStream
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+    //endregion
+
+    //region setUp
+    @Setup(Level.Trial)
+    public void setUp() {
+        mPixels = BenchmarkImages.photo(size, size);
+        mPool = threads == 0 ? null : new ForkJoinPool(threads);
+    }
+    //endregion
+
+    //region tearDown
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (mPool != null) {
+            mPool.shutdown();
+        }
+    }
+    //endregion
+
+    //region encode
+    @Benchmark
+    public long encode() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        try (PngWriter writer = new PngWriter(out, size, size, true, level, mPool, Cancellation.NONE)) {
+            writer.writeRows(mPixels, 0, size, size);
+        }
+        return out.count;
+    }
+    //endregion
+}
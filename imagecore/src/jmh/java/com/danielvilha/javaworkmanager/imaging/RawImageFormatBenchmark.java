@@ -0,0 +1,69 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Time to convert a whole planar image to and from the raw intermediate format, in memory. This is the
+ * format conversion cost only, the cost of the file itself depends on the device.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RawImageFormatBenchmark {
+
+    //region Variables
+    @Param({ "512", "1024", "2048", "4096" })
+    public int size;
+
+    @Param({ "1", "2" })
+    public int pixelFormat;
+
+    private PixelBuffer mPixels;
+    private RawImageFormat.Header mHeader;
+    private ByteBuffer mBuffer;
+    //endregion
+
+    //region setUp
+    @Setup(Level.Trial)
+    public void setUp() {
+        mPixels = new PixelBuffer(size, size, pixelFormat == RawImageFormat.PIXEL_FORMAT_RGB_565);
+        mPixels.copyFromArgb(BenchmarkImages.photo(size, size), 0, size, 0, size);
+        mHeader = new RawImageFormat.Header(pixelFormat, size, size, mPixels.isOpaque());
+        mBuffer = ByteBuffer.allocateDirect((int) mHeader.fileSize());
+        RawImageFormat.writeBuffer(mBuffer, mHeader, mPixels);
+    }
+    //endregion
+
+    //region write
+    @Benchmark
+    public ByteBuffer write() {
+        mBuffer.clear();
+        RawImageFormat.writeBuffer(mBuffer, mHeader, mPixels);
+        return mBuffer;
+    }
+    //endregion
+
+    //region read
+    @Benchmark
+    public PixelBuffer read() throws IOException {
+        mBuffer.clear();
+        RawImageFormat.Header header = RawImageFormat.readHeader(mBuffer);
+        RawImageFormat.readBuffer(mBuffer, header, mPixels, header.height);
+        return mPixels;
+    }
+    //endregion
+}
@@ -0,0 +1,257 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Gaussian blur approximated by three successive box blurs along each axis. Every box is a
+ * running sum, so the cost per pixel stays the same whatever the radius, where the cost of
+ * {@link GaussianBlur} grows with the kernel size.
+ *
+ * The box sizes are picked to match the variance of the Gaussian of the same radius, following the
+ * ScriptIntrinsicBlur convention of {@link GaussianBlur#sigmaForRadius(float)}. Pixels are the
+ * planes of a {@link PixelBuffer}, premultiplied when not opaque, and bands of rows or columns run
+ * on a {@link ForkJoinPool}.
+ */
+public final class BoxBlur {
+
+    //region Variables
+    // Number of box blurs applied along each axis
+    private static final int BOX_COUNT = 3;
+
+    // Fixed point precision of the box reciprocals
+    private static final int SCALE_SHIFT = 24;
+    private static final long SCALE_ROUNDING = 1L << (SCALE_SHIFT - 1);
+
+    // Smallest number of rows (or columns) processed by a single task
+    private static final int MIN_BAND_SIZE = 16;
+    //endregion
+
+    //region blur
+    /**
+     * Blurs the planes of {@code src} into {@code dst}, which may be the same buffer. Each channel
+     * is blurred vertically then horizontally, the vertical boxes keeping a running sum per column
+     * so the inner loops walk rows.
+     * @param src Source pixels
+     * @param dst Destination pixels, same size and channels as src
+     * @param radius Blur radius in pixels
+     * @param pool Pool the bands run on
+     * @param cancellation Polled before each row
+     * @throws java.util.concurrent.CancellationException Throws if cancelled, dst is then incomplete
+     */
+    public static void blur(PixelBuffer src, PixelBuffer dst, float radius, ForkJoinPool pool,
+                            Cancellation cancellation) {
+        int width = src.width();
+        int height = src.height();
+        if (dst.width() != width || dst.height() != height || dst.channelCount() != src.channelCount()) {
+            throw new IllegalArgumentException("Buffers of different shapes");
+        }
+
+        int[] radii = boxRadii(GaussianBlur.sigmaForRadius(radius));
+        short[] tmp = new short[width * height];
+
+        for (int c = 0; c < src.channelCount(); c++) {
+            short[] in = src.channel(c);
+            short[] out = dst.channel(c);
+
+            cancellation.throwIfCancelled();
+            pool.invoke(new PlaneTask(in, out, tmp, width, height, radii, false, 0, width, cancellation));
+            cancellation.throwIfCancelled();
+            pool.invoke(new PlaneTask(tmp, out, null, width, height, radii, true, 0, height, cancellation));
+        }
+    }
+    //endregion
+
+    //region support
+    /**
+     * Distance a pixel spreads to once blurred, what a strip of the image needs around it
+     * @param radius Blur radius in pixels
+     * @return Sum of the box radii
+     */
+    public static int support(float radius) {
+        int support = 0;
+        for (int boxRadius : boxRadii(GaussianBlur.sigmaForRadius(radius))) {
+            support += boxRadius;
+        }
+        return support;
+    }
+    //endregion
+
+    //region boxRadii
+    /**
+     * Radii of the BOX_COUNT boxes whose succession has the variance of a Gaussian of the given
+     * sigma, the first ones being one size smaller than the last ones when they can't all match
+     * @param sigma Standard deviation of the Gaussian
+     * @return Radius of each box
+     */
+    static int[] boxRadii(float sigma) {
+        double variance = 12.0 * sigma * sigma;
+
+        // Largest odd width not above the ideal one
+        int lower = (int) Math.floor(Math.sqrt(variance / BOX_COUNT + 1));
+        if (lower % 2 == 0) {
+            lower--;
+        }
+        int upper = lower + 2;
+
+        // Number of boxes of the lower width
+        int lowerCount = (int) Math.round((variance - BOX_COUNT * lower * lower - 4.0 * BOX_COUNT * lower - 3.0 * BOX_COUNT)
+                / (-4.0 * lower - 4.0));
+
+        int[] radii = new int[BOX_COUNT];
+        for (int i = 0; i < BOX_COUNT; i++) {
+            radii[i] = ((i < lowerCount ? lower : upper) - 1) / 2;
+        }
+        return radii;
+    }
+    //endregion
+
+    //region box
+    /**
+     * Box blur of one channel line, the edges are extended
+     * @param max Largest channel value
+     */
+    private static void box(int[] in, int[] out, int length, int radius, int max) {
+        if (radius == 0) {
+            System.arraycopy(in, 0, out, 0, length);
+            return;
+        }
+
+        int last = length - 1;
+        long scale = Math.round((double) (1 << SCALE_SHIFT) / (2 * radius + 1));
+
+        int sum = (radius + 1) * in[0];
+        for (int k = 1; k <= radius; k++) {
+            sum += in[Math.min(k, last)];
+        }
+
+        for (int i = 0; i < length; i++) {
+            out[i] = (int) Math.min(max, (sum * scale + SCALE_ROUNDING) >>> SCALE_SHIFT);
+            sum += in[Math.min(i + radius + 1, last)] - in[Math.max(i - radius, 0)];
+        }
+    }
+    //endregion
+
+    //region PlaneTask
+    /**
+     * The box blurs of one plane along one axis over the band [start, end). Vertically the band is
+     * a range of columns, blurred from in to scratch to out and back to scratch, horizontally it
+     * is a range of rows of the scratch plane blurred into out.
+     */
+    private static final class PlaneTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final short[] mIn;
+        private final short[] mOut;
+        private final short[] mScratch;
+        private final int mWidth;
+        private final int mHeight;
+        private final int[] mRadii;
+        private final boolean mHorizontal;
+        private final int mStart;
+        private final int mEnd;
+        private final Cancellation mCancellation;
+
+        PlaneTask(short[] in, short[] out, short[] scratch, int width, int height, int[] radii, boolean horizontal,
+                  int start, int end, Cancellation cancellation) {
+            mIn = in;
+            mOut = out;
+            mScratch = scratch;
+            mWidth = width;
+            mHeight = height;
+            mRadii = radii;
+            mHorizontal = horizontal;
+            mStart = start;
+            mEnd = end;
+            mCancellation = cancellation;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart <= MIN_BAND_SIZE) {
+                if (mHorizontal) {
+                    blurRows();
+                } else {
+                    blurColumns();
+                }
+                return;
+            }
+
+            int middle = (mStart + mEnd) >>> 1;
+            invokeAll(new PlaneTask(mIn, mOut, mScratch, mWidth, mHeight, mRadii, mHorizontal, mStart, middle, mCancellation),
+                    new PlaneTask(mIn, mOut, mScratch, mWidth, mHeight, mRadii, mHorizontal, middle, mEnd, mCancellation));
+        }
+
+        private void blurColumns() {
+            int[] sums = new int[mEnd - mStart];
+
+            // Three boxes, the result ends in the scratch plane
+            boxColumns(mIn, mScratch, mRadii[0], sums);
+            boxColumns(mScratch, mOut, mRadii[1], sums);
+            boxColumns(mOut, mScratch, mRadii[2], sums);
+        }
+
+        /**
+         * One vertical box over the columns of the band, the edges are extended
+         */
+        private void boxColumns(short[] in, short[] out, int radius, int[] sums) {
+            int last = mHeight - 1;
+            int count = mEnd - mStart;
+            long scale = Math.round((double) (1 << SCALE_SHIFT) / (2 * radius + 1));
+
+            for (int i = 0; i < count; i++) {
+                int x = mStart + i;
+                int sum = (radius + 1) * in[x];
+                for (int k = 1; k <= radius; k++) {
+                    sum += in[Math.min(k, last) * mWidth + x];
+                }
+                sums[i] = sum;
+            }
+
+            for (int y = 0; y < mHeight; y++) {
+                mCancellation.throwIfCancelled();
+                int row = y * mWidth + mStart;
+                int added = Math.min(y + radius + 1, last) * mWidth + mStart;
+                int removed = Math.max(y - radius, 0) * mWidth + mStart;
+
+                for (int i = 0; i < count; i++) {
+                    out[row + i] = (short) ((sums[i] * scale + SCALE_ROUNDING) >>> SCALE_SHIFT);
+                    sums[i] += in[added + i] - in[removed + i];
+                }
+            }
+        }
+
+        private void blurRows() {
+            int[] line = new int[mWidth];
+            int[] scratch = new int[mWidth];
+
+            for (int y = mStart; y < mEnd; y++) {
+                mCancellation.throwIfCancelled();
+                int row = y * mWidth;
+
+                for (int x = 0; x < mWidth; x++) {
+                    line[x] = mIn[row + x];
+                }
+
+                for (int boxRadius : mRadii) {
+                    box(line, scratch, mWidth, boxRadius, PixelBuffer.ONE);
+                    int[] swap = line;
+                    line = scratch;
+                    scratch = swap;
+                }
+
+                for (int x = 0; x < mWidth; x++) {
+                    mOut[row + x] = (short) line[x];
+                }
+            }
+        }
+    }
+    //endregion
+
+    //region BoxBlur
+    private BoxBlur() { }
+    //endregion
+}
@@ -0,0 +1,29 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Polled by the kernels at row, band and pass boundaries. Once it reports a cancellation the
+ * kernel stops with a {@link CancellationException}, leaving its output incomplete.
+ */
+public interface Cancellation {
+
+    // Never cancelled
+    Cancellation NONE = () -> false;
+
+    /**
+     * @return True if the work should stop, called often so it must be cheap
+     */
+    boolean isCancelled();
+
+    /**
+     * @throws CancellationException Throws if the work should stop
+     */
+    default void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Separable Gaussian blur over the planes of a {@link PixelBuffer}. Each plane is blurred with a
+ * horizontal pass followed by a vertical pass, each one split in bands that run on a
+ * {@link ForkJoinPool}.
+ *
+ * The kernel follows the same convention as ScriptIntrinsicBlur (sigma = 0.4 * radius + 0.6,
+ * truncated at the radius) so both engines produce the same image for the same radius.
+ */
+public final class GaussianBlur {
+
+    //region Variables
+    // Fixed point precision of the kernel weights
+    private static final int WEIGHT_SHIFT = 16;
+    private static final int WEIGHT_ROUNDING = 1 << (WEIGHT_SHIFT - 1);
+
+    // Smallest number of rows (or columns) processed by a single task
+    private static final int MIN_BAND_SIZE = 16;
+    //endregion
+
+    //region sigmaForRadius
+    /**
+     * Standard deviation used for the given radius, as defined by ScriptIntrinsicBlur
+     * @param radius Blur radius in pixels
+     * @return Sigma of the Gaussian kernel
+     */
+    public static float sigmaForRadius(float radius) {
+        return 0.4f * radius + 0.6f;
+    }
+    //endregion
+
+    //region radiusForSigma
+    /**
+     * Inverse of {@link #sigmaForRadius(float)}
+     * @param sigma Standard deviation of the Gaussian kernel
+     * @return Blur radius in pixels
+     */
+    public static float radiusForSigma(float sigma) {
+        return (sigma - 0.6f) / 0.4f;
+    }
+    //endregion
+
+    //region combinedRadius
+    /**
+     * Radius of the single blur equivalent to applying {@code passes} blurs of {@code radius}.
+     * Chained Gaussian blurs add up their variances, so the combined sigma is sigma * sqrt(passes).
+     * @param radius Radius of each pass
+     * @param passes Number of passes
+     * @return Radius of the equivalent single pass
+     */
+    public static float combinedRadius(float radius, int passes) {
+        if (passes <= 1) {
+            return radius;
+        }
+        return radiusForSigma(sigmaForRadius(radius) * (float) Math.sqrt(passes));
+    }
+    //endregion
+
+    //region splitRadius
+    /**
+     * Inverse of {@link #combinedRadius(float, int)}, radius of each of the {@code passes} blurs
+     * equivalent to a single blur of {@code radius}
+     * @param radius Radius of the single pass
+     * @param passes Number of passes
+     * @return Radius of each pass, never negative
+     */
+    public static float splitRadius(float radius, int passes) {
+        if (passes <= 1) {
+            return radius;
+        }
+        return Math.max(0f, radiusForSigma(sigmaForRadius(radius) / (float) Math.sqrt(passes)));
+    }
+    //endregion
+
+    //region blur
+    /**
+     * Blurs the planes of {@code src} into {@code dst}, which may be the same buffer. The vertical
+     * pass accumulates whole rows at a time so its inner loop walks memory sequentially.
+     * @param src Source pixels
+     * @param dst Destination pixels, same size and channels as src
+     * @param radius Blur radius in pixels
+     * @param pool Pool the bands run on
+     * @param cancellation Polled before each row
+     * @throws java.util.concurrent.CancellationException Throws if cancelled, dst is then incomplete
+     */
+    public static void blur(PixelBuffer src, PixelBuffer dst, float radius, ForkJoinPool pool,
+                            Cancellation cancellation) {
+        int width = src.width();
+        int height = src.height();
+        if (dst.width() != width || dst.height() != height || dst.channelCount() != src.channelCount()) {
+            throw new IllegalArgumentException("Buffers of different shapes");
+        }
+
+        int[] kernel = createKernel(radius);
+        short[] tmp = new short[width * height];
+
+        for (int c = 0; c < src.channelCount(); c++) {
+            cancellation.throwIfCancelled();
+            pool.invoke(new PlaneTask(src.channel(c), tmp, width, height, kernel, true, 0, height, cancellation));
+            cancellation.throwIfCancelled();
+            pool.invoke(new PlaneTask(tmp, dst.channel(c), width, height, kernel, false, 0, width, cancellation));
+        }
+    }
+    //endregion
+
+    //region createKernel
+    /**
+     * Creates the fixed point weights for the given radius. The weights sum to 1 << WEIGHT_SHIFT.
+     * @param radius Blur radius in pixels
+     * @return Array of 2 * ceil(radius) + 1 weights
+     */
+    static int[] createKernel(float radius) {
+        int half = (int) Math.ceil(radius);
+        float sigma = sigmaForRadius(radius);
+        float twoSigmaSquare = 2f * sigma * sigma;
+
+        double[] weights = new double[2 * half + 1];
+        double sum = 0;
+        for (int i = -half; i <= half; i++) {
+            double weight = Math.exp(-(i * i) / twoSigmaSquare);
+            weights[i + half] = weight;
+            sum += weight;
+        }
+
+        int[] kernel = new int[weights.length];
+        int total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            kernel[i] = (int) Math.round(weights[i] / sum * (1 << WEIGHT_SHIFT));
+            total += kernel[i];
+        }
+
+        // Put the rounding error back in the center so the kernel doesn't darken the image
+        kernel[half] += (1 << WEIGHT_SHIFT) - total;
+        return kernel;
+    }
+    //endregion
+
+    //region PlaneTask
+    /**
+     * One pass of the separable blur over one plane of a {@link PixelBuffer}, on the band
+     * [start, end) of rows for the horizontal pass or of columns for the vertical pass
+     */
+    private static final class PlaneTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final short[] mSrc;
+        private final short[] mDst;
+        private final int mWidth;
+        private final int mHeight;
+        private final int[] mKernel;
+        private final boolean mHorizontal;
+        private final int mStart;
+        private final int mEnd;
+        private final Cancellation mCancellation;
+
+        PlaneTask(short[] src, short[] dst, int width, int height, int[] kernel, boolean horizontal,
+                  int start, int end, Cancellation cancellation) {
+            mSrc = src;
+            mDst = dst;
+            mWidth = width;
+            mHeight = height;
+            mKernel = kernel;
+            mHorizontal = horizontal;
+            mStart = start;
+            mEnd = end;
+            mCancellation = cancellation;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart <= MIN_BAND_SIZE) {
+                if (mHorizontal) {
+                    blurRows();
+                } else {
+                    blurColumns();
+                }
+                return;
+            }
+
+            int middle = (mStart + mEnd) >>> 1;
+            invokeAll(new PlaneTask(mSrc, mDst, mWidth, mHeight, mKernel, mHorizontal, mStart, middle, mCancellation),
+                    new PlaneTask(mSrc, mDst, mWidth, mHeight, mKernel, mHorizontal, middle, mEnd, mCancellation));
+        }
+
+        private void blurRows() {
+            int half = mKernel.length >> 1;
+            int last = mWidth - 1;
+
+            for (int y = mStart; y < mEnd; y++) {
+                mCancellation.throwIfCancelled();
+                int row = y * mWidth;
+
+                for (int x = 0; x < mWidth; x++) {
+                    int sum = WEIGHT_ROUNDING;
+                    if (x >= half && x + half <= last) {
+                        // Away from the edges, no clamping
+                        int first = row + x - half;
+                        for (int k = 0; k < mKernel.length; k++) {
+                            sum += mKernel[k] * mSrc[first + k];
+                        }
+                    } else {
+                        for (int k = -half; k <= half; k++) {
+                            int sx = Math.max(0, Math.min(last, x + k));
+                            sum += mKernel[k + half] * mSrc[row + sx];
+                        }
+                    }
+                    mDst[row + x] = (short) (sum >>> WEIGHT_SHIFT);
+                }
+            }
+        }
+
+        private void blurColumns() {
+            int half = mKernel.length >> 1;
+            int last = mHeight - 1;
+            int count = mEnd - mStart;
+            int[] sums = new int[count];
+
+            for (int y = 0; y < mHeight; y++) {
+                mCancellation.throwIfCancelled();
+                for (int i = 0; i < count; i++) {
+                    sums[i] = WEIGHT_ROUNDING;
+                }
+
+                // Channel values stay below 1 << 15, so the sums fit in an int
+                for (int k = -half; k <= half; k++) {
+                    int weight = mKernel[k + half];
+                    int source = Math.max(0, Math.min(last, y + k)) * mWidth + mStart;
+                    for (int i = 0; i < count; i++) {
+                        sums[i] += weight * mSrc[source + i];
+                    }
+                }
+
+                int row = y * mWidth + mStart;
+                for (int i = 0; i < count; i++) {
+                    mDst[row + i] = (short) (sums[i] >>> WEIGHT_SHIFT);
+                }
+            }
+        }
+    }
+    //endregion
+
+    //region GaussianBlur
+    private GaussianBlur() { }
+    //endregion
+}
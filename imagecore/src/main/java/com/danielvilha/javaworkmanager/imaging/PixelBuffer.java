@@ -0,0 +1,314 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Planar image the pixel kernels work on. Each channel has its own short array, row by row, so
+ * the kernels run simple loops over primitive arrays the JIT can vectorize.
+ *
+ * Channels are premultiplied by alpha and stored in fixed point with FRACTION_BITS fractional
+ * bits, ONE being a full channel. The extra bits keep the rounding of successive passes out of
+ * the final 8 bit values. Opaque images have no alpha plane.
+ *
+ * A buffer can be reshaped to any size up to its capacity, so a stage working strip by strip
+ * allocates its planes only once.
+ */
+public final class PixelBuffer {
+
+    //region Variables
+    public static final int CHANNEL_RED = 0;
+    public static final int CHANNEL_GREEN = 1;
+    public static final int CHANNEL_BLUE = 2;
+    public static final int CHANNEL_ALPHA = 3;
+
+    // Fractional bits of the fixed point channel values
+    public static final int FRACTION_BITS = 7;
+    // Value of a full channel
+    public static final int ONE = 0xFF << FRACTION_BITS;
+
+    private static final int FRACTION_ROUNDING = 1 << (FRACTION_BITS - 1);
+
+    private final boolean mOpaque;
+    private final short[][] mChannels;
+    private int mWidth;
+    private int mHeight;
+    //endregion
+
+    //region PixelBuffer
+    /**
+     * @param width Image width
+     * @param height Image height
+     * @param opaque True to leave out the alpha plane
+     */
+    public PixelBuffer(int width, int height, boolean opaque) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid size " + width + "x" + height);
+        }
+
+        mOpaque = opaque;
+        mChannels = new short[opaque ? 3 : 4][width * height];
+        mWidth = width;
+        mHeight = height;
+    }
+    //endregion
+
+    //region obtain
+    /**
+     * Reuses the buffer when it is large enough, allocates a new one otherwise
+     * @param buffer Buffer to reuse or null
+     * @param width Image width
+     * @param height Image height
+     * @param opaque True to leave out the alpha plane
+     * @return A buffer of the given size, its pixels are undefined
+     */
+    public static PixelBuffer obtain(PixelBuffer buffer, int width, int height, boolean opaque) {
+        if (buffer != null && buffer.mOpaque == opaque && buffer.capacity() >= width * height) {
+            buffer.mWidth = width;
+            buffer.mHeight = height;
+            return buffer;
+        }
+        return new PixelBuffer(width, height, opaque);
+    }
+    //endregion
+
+    //region Getters
+    public int width() { return mWidth; }
+
+    public int height() { return mHeight; }
+
+    public boolean isOpaque() { return mOpaque; }
+
+    /**
+     * @return 3 for opaque images, 4 otherwise
+     */
+    public int channelCount() { return mChannels.length; }
+
+    /**
+     * @return Largest number of pixels the buffer can be reshaped to
+     */
+    public int capacity() { return mChannels[0].length; }
+
+    /**
+     * @return Bytes taken by the planes
+     */
+    public long byteCount() { return (long) mChannels.length * capacity() * Short.BYTES; }
+
+    /**
+     * @param channel One of the CHANNEL constants
+     * @return Plane of the channel, {@code width * height} values row by row, possibly longer
+     */
+    public short[] channel(int channel) { return mChannels[channel]; }
+    //endregion
+
+    //region copyFrom
+    /**
+     * Reads rows in one of the {@link RawImageFormat} pixel formats, the layouts Bitmap uses in
+     * memory, at the current position of the buffer
+     * @param src Buffer holding {@code rows * width} pixels
+     * @param pixelFormat One of the RawImageFormat PIXEL_FORMAT constants
+     * @param y First row to set
+     * @param rows Number of rows
+     */
+    public void copyFrom(ByteBuffer src, int pixelFormat, int y, int rows) {
+        checkRows(y, rows);
+        short[] red = mChannels[CHANNEL_RED];
+        short[] green = mChannels[CHANNEL_GREEN];
+        short[] blue = mChannels[CHANNEL_BLUE];
+        int start = y * mWidth;
+        int end = start + rows * mWidth;
+
+        if (pixelFormat == RawImageFormat.PIXEL_FORMAT_RGB_565) {
+            ByteOrder order = src.order();
+            src.order(ByteOrder.nativeOrder());
+            ShortBuffer shorts = src.asShortBuffer();
+
+            for (int i = start; i < end; i++) {
+                int pixel = shorts.get() & 0xFFFF;
+                int r = (pixel >> 11) & 0x1F;
+                int g = (pixel >> 5) & 0x3F;
+                int b = pixel & 0x1F;
+
+                // Replicate the high bits so white stays white
+                red[i] = (short) ((r << 3 | r >> 2) << FRACTION_BITS);
+                green[i] = (short) ((g << 2 | g >> 4) << FRACTION_BITS);
+                blue[i] = (short) ((b << 3 | b >> 2) << FRACTION_BITS);
+            }
+            if (!mOpaque) {
+                Arrays.fill(mChannels[CHANNEL_ALPHA], start, end, (short) ONE);
+            }
+
+            src.position(src.position() + 2 * (end - start));
+            src.order(order);
+        } else if (pixelFormat == RawImageFormat.PIXEL_FORMAT_RGBA_8888) {
+            short[] alpha = mOpaque ? null : mChannels[CHANNEL_ALPHA];
+
+            for (int i = start; i < end; i++) {
+                red[i] = (short) ((src.get() & 0xFF) << FRACTION_BITS);
+                green[i] = (short) ((src.get() & 0xFF) << FRACTION_BITS);
+                blue[i] = (short) ((src.get() & 0xFF) << FRACTION_BITS);
+                byte a = src.get();
+                if (alpha != null) {
+                    alpha[i] = (short) ((a & 0xFF) << FRACTION_BITS);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown pixel format " + pixelFormat);
+        }
+    }
+    //endregion
+
+    //region copyTo
+    /**
+     * Writes rows in one of the {@link RawImageFormat} pixel formats at the current position of
+     * the buffer
+     * @param dst Buffer with room for {@code rows * width} pixels
+     * @param pixelFormat One of the RawImageFormat PIXEL_FORMAT constants, RGB_565 drops alpha
+     * @param y First row to write
+     * @param rows Number of rows
+     */
+    public void copyTo(ByteBuffer dst, int pixelFormat, int y, int rows) {
+        checkRows(y, rows);
+        short[] red = mChannels[CHANNEL_RED];
+        short[] green = mChannels[CHANNEL_GREEN];
+        short[] blue = mChannels[CHANNEL_BLUE];
+        int start = y * mWidth;
+        int end = start + rows * mWidth;
+
+        if (pixelFormat == RawImageFormat.PIXEL_FORMAT_RGB_565) {
+            ByteOrder order = dst.order();
+            dst.order(ByteOrder.nativeOrder());
+            ShortBuffer shorts = dst.asShortBuffer();
+
+            for (int i = start; i < end; i++) {
+                shorts.put((short) ((toByte(red[i]) & 0xF8) << 8
+                        | (toByte(green[i]) & 0xFC) << 3
+                        | toByte(blue[i]) >> 3));
+            }
+
+            dst.position(dst.position() + 2 * (end - start));
+            dst.order(order);
+        } else if (pixelFormat == RawImageFormat.PIXEL_FORMAT_RGBA_8888) {
+            short[] alpha = mOpaque ? null : mChannels[CHANNEL_ALPHA];
+
+            for (int i = start; i < end; i++) {
+                dst.put((byte) toByte(red[i]));
+                dst.put((byte) toByte(green[i]));
+                dst.put((byte) toByte(blue[i]));
+                dst.put((byte) (alpha == null ? 0xFF : toByte(alpha[i])));
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown pixel format " + pixelFormat);
+        }
+    }
+    //endregion
+
+    //region copyFromArgb
+    /**
+     * Sets rows from packed ARGB pixels, not premultiplied, as returned by Bitmap.getPixels
+     * @param argb Packed ARGB pixels
+     * @param offset Index of the first pixel of the first row
+     * @param stride Distance between two rows in argb
+     * @param y First row to set
+     * @param rows Number of rows
+     */
+    public void copyFromArgb(int[] argb, int offset, int stride, int y, int rows) {
+        checkRows(y, rows);
+        short[] red = mChannels[CHANNEL_RED];
+        short[] green = mChannels[CHANNEL_GREEN];
+        short[] blue = mChannels[CHANNEL_BLUE];
+        short[] alpha = mOpaque ? null : mChannels[CHANNEL_ALPHA];
+
+        for (int row = 0; row < rows; row++) {
+            int index = (y + row) * mWidth;
+            int source = offset + row * stride;
+
+            for (int x = 0; x < mWidth; x++, index++) {
+                int pixel = argb[source + x];
+                int a = pixel >>> 24;
+                int r = (pixel >> 16) & 0xFF;
+                int g = (pixel >> 8) & 0xFF;
+                int b = pixel & 0xFF;
+
+                if (alpha == null || a == 0xFF) {
+                    red[index] = (short) (r << FRACTION_BITS);
+                    green[index] = (short) (g << FRACTION_BITS);
+                    blue[index] = (short) (b << FRACTION_BITS);
+                } else {
+                    // Premultiplied in fixed point, keeping the fractional bits
+                    red[index] = (short) ((r * a * (1 << FRACTION_BITS) + 127) / 255);
+                    green[index] = (short) ((g * a * (1 << FRACTION_BITS) + 127) / 255);
+                    blue[index] = (short) ((b * a * (1 << FRACTION_BITS) + 127) / 255);
+                }
+                if (alpha != null) {
+                    alpha[index] = (short) (a << FRACTION_BITS);
+                }
+            }
+        }
+    }
+    //endregion
+
+    //region copyToArgb
+    /**
+     * Writes rows as packed ARGB pixels, not premultiplied, as expected by Bitmap.setPixels
+     * @param y First row to write
+     * @param rows Number of rows
+     * @param argb Packed ARGB pixels
+     * @param offset Index of the first pixel of the first row
+     * @param stride Distance between two rows in argb
+     */
+    public void copyToArgb(int y, int rows, int[] argb, int offset, int stride) {
+        checkRows(y, rows);
+        short[] red = mChannels[CHANNEL_RED];
+        short[] green = mChannels[CHANNEL_GREEN];
+        short[] blue = mChannels[CHANNEL_BLUE];
+        short[] alpha = mOpaque ? null : mChannels[CHANNEL_ALPHA];
+
+        for (int row = 0; row < rows; row++) {
+            int index = (y + row) * mWidth;
+            int target = offset + row * stride;
+
+            for (int x = 0; x < mWidth; x++, index++) {
+                int a = alpha == null ? ONE : alpha[index];
+                int r = red[index];
+                int g = green[index];
+                int b = blue[index];
+
+                if (a >= ONE) {
+                    argb[target + x] = 0xFF000000 | toByte(r) << 16 | toByte(g) << 8 | toByte(b);
+                } else if (a <= 0) {
+                    argb[target + x] = 0;
+                } else {
+                    int half = a >> 1;
+                    argb[target + x] = toByte(a) << 24
+                            | Math.min(0xFF, (r * 0xFF + half) / a) << 16
+                            | Math.min(0xFF, (g * 0xFF + half) / a) << 8
+                            | Math.min(0xFF, (b * 0xFF + half) / a);
+                }
+            }
+        }
+    }
+    //endregion
+
+    //region toByte
+    /**
+     * @param value Fixed point channel value
+     * @return The value rounded to 8 bits
+     */
+    static int toByte(int value) {
+        return Math.max(0, Math.min(0xFF, (value + FRACTION_ROUNDING) >> FRACTION_BITS));
+    }
+    //endregion
+
+    //region checkRows
+    private void checkRows(int y, int rows) {
+        if (y < 0 || rows < 0 || y + rows > mHeight) {
+            throw new IndexOutOfBoundsException("Rows " + y + " to " + (y + rows) + " of " + mHeight);
+        }
+    }
+    //endregion
+}
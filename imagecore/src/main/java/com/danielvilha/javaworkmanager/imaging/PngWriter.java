@@ -0,0 +1,487 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Streaming PNG encoder for packed ARGB pixels or {@link PixelBuffer} rows. Rows are filtered as
+ * soon as they are handed over, so an image can be encoded without ever holding all of it in
+ * memory.
+ *
+ * Filtered rows are grouped in blocks deflated independently, in parallel when a pool is given,
+ * the way pigz does. Each block is primed with the end of the previous one as dictionary and ends
+ * on a sync flush, so the blocks concatenate into a single zlib stream; their checksums are
+ * combined into the one of the whole stream. A block is written as one IDAT chunk.
+ */
+public final class PngWriter implements Closeable {
+
+    //region Variables
+    private static final byte[] SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+    private static final byte[] IHDR = { 'I', 'H', 'D', 'R' };
+    private static final byte[] IDAT = { 'I', 'D', 'A', 'T' };
+    private static final byte[] IEND = { 'I', 'E', 'N', 'D' };
+
+    // PNG filter applied to every row, Sub works well on smooth images
+    private static final int FILTER_SUB = 1;
+
+    // Filtered bytes deflated at a time
+    private static final int BLOCK_BYTES = 256 * 1024;
+    // Deflate window, the most of the previous block a dictionary can use
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    // Largest prime below 65536, modulus of Adler-32
+    private static final int ADLER_BASE = 65521;
+    private static final int ZLIB_HEADER_SIZE = 2;
+    private static final int ZLIB_TRAILER_SIZE = 4;
+
+    private final OutputStream mOut;
+    private final int mWidth;
+    private final int mHeight;
+    private final int mBytesPerPixel;
+    private final int mRowBytes;
+    private final int mBlockRows;
+    private final int mLevel;
+    private final ForkJoinPool mPool;
+    private final int mMaxPendingBlocks;
+    private final CRC32 mCrc = new CRC32();
+    private final Cancellation mCancellation;
+    // Blocks being deflated, in image order
+    private final ArrayDeque<Future<Block>> mPendingBlocks = new ArrayDeque<>();
+    // Deflaters not used by any block
+    private final ConcurrentLinkedQueue<Deflater> mDeflaters = new ConcurrentLinkedQueue<>();
+    // Filtered rows of written blocks, reused by the next ones
+    private final ArrayDeque<byte[]> mFreeBlocks = new ArrayDeque<>();
+    // Row of a PixelBuffer converted to ARGB, allocated on first use
+    private int[] mArgbRow;
+    private Block mBlock;
+    private byte[] mDictionary;
+    private long mAdler = 1;
+    private int mRowsWritten;
+    //endregion
+
+    //region Block
+    /**
+     * Filtered rows deflated together
+     */
+    private static final class Block {
+        final byte[] rows;
+        final byte[] dictionary;
+        final boolean first;
+        int length;
+        boolean last;
+
+        // Set once deflated
+        byte[] deflated;
+        int deflatedLength;
+        long adler;
+
+        Block(byte[] rows, byte[] dictionary, boolean first) {
+            this.rows = rows;
+            this.dictionary = dictionary;
+            this.first = first;
+        }
+    }
+    //endregion
+
+    //region PngWriter
+    /**
+     * Writes the PNG header to the stream
+     * @param out Stream the image is written to, closed by {@link #close()}
+     * @param width Image width
+     * @param height Image height
+     * @param alpha True to keep the alpha channel, false for an opaque RGB image
+     * @param level Deflate compression level, see {@link Deflater}
+     */
+    public PngWriter(OutputStream out, int width, int height, boolean alpha, int level) throws IOException {
+        this(out, width, height, alpha, level, null, Cancellation.NONE);
+    }
+
+    /**
+     * Same as {@link #PngWriter(OutputStream, int, int, boolean, int)}, with writes stopping as soon
+     * as the cancellation is reported
+     * @param cancellation Polled before each row
+     */
+    public PngWriter(OutputStream out, int width, int height, boolean alpha, int level,
+                     Cancellation cancellation) throws IOException {
+        this(out, width, height, alpha, level, null, cancellation);
+    }
+
+    /**
+     * Same as {@link #PngWriter(OutputStream, int, int, boolean, int, Cancellation)}, with blocks
+     * deflated on the pool while the next rows are handed over. The writer must not be used from
+     * a thread of the pool.
+     * @param pool Pool the blocks are deflated on, or null to deflate them on the calling thread
+     */
+    public PngWriter(OutputStream out, int width, int height, boolean alpha, int level,
+                     ForkJoinPool pool, Cancellation cancellation) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid size " + width + "x" + height);
+        }
+
+        mOut = out;
+        mWidth = width;
+        mHeight = height;
+        mBytesPerPixel = alpha ? 4 : 3;
+        mRowBytes = 1 + width * mBytesPerPixel;
+        mBlockRows = Math.max(1, BLOCK_BYTES / mRowBytes);
+        mLevel = level;
+        mPool = pool;
+        // Enough blocks to keep the pool busy while the oldest one is written
+        mMaxPendingBlocks = pool == null ? 0 : 2 * pool.getParallelism();
+        mCancellation = cancellation;
+
+        mOut.write(SIGNATURE);
+
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8;                      // Bit depth
+        header[9] = (byte) (alpha ? 6 : 2); // Color type, RGBA or RGB
+        header[10] = 0;                     // Compression method
+        header[11] = 0;                     // Filter method
+        header[12] = 0;                     // No interlace
+        writeChunk(IHDR, header, header.length);
+    }
+    //endregion
+
+    //region writeRows
+    /**
+     * Encodes the next rows of the image
+     * @param pixels Packed ARGB pixels
+     * @param offset Index of the first pixel of the first row
+     * @param stride Number of pixels between the start of two rows
+     * @param rows Number of rows to write
+     * @throws java.util.concurrent.CancellationException Throws if cancelled, the image is then incomplete
+     */
+    public void writeRows(int[] pixels, int offset, int stride, int rows) throws IOException {
+        if (mRowsWritten + rows > mHeight) {
+            throw new IllegalStateException("Writing more than " + mHeight + " rows");
+        }
+
+        for (int y = 0; y < rows; y++) {
+            mCancellation.throwIfCancelled();
+            if (mBlock == null) {
+                mBlock = newBlock();
+            }
+
+            filterRow(pixels, offset + y * stride, mBlock.rows, mBlock.length);
+            mBlock.length += mRowBytes;
+            mRowsWritten++;
+
+            if (mBlock.length == mBlock.rows.length || mRowsWritten == mHeight) {
+                mBlock.last = mRowsWritten == mHeight;
+                submit(mBlock);
+                mBlock = null;
+            }
+        }
+    }
+
+    /**
+     * Encodes the next rows of the image from a planar buffer
+     * @param buffer Buffer as wide as the image
+     * @param y First row of the buffer to write
+     * @param rows Number of rows to write
+     * @throws java.util.concurrent.CancellationException Throws if cancelled, the image is then incomplete
+     */
+    public void writeRows(PixelBuffer buffer, int y, int rows) throws IOException {
+        if (buffer.width() != mWidth) {
+            throw new IllegalArgumentException("Buffer is " + buffer.width() + " pixels wide, not " + mWidth);
+        }
+        if (mArgbRow == null) {
+            mArgbRow = new int[mWidth];
+        }
+
+        for (int row = 0; row < rows; row++) {
+            buffer.copyToArgb(y + row, 1, mArgbRow, 0, mWidth);
+            writeRows(mArgbRow, 0, mWidth, 1);
+        }
+    }
+    //endregion
+
+    //region close
+    /**
+     * Flushes the compressed data, writes the end of the image and closes the stream
+     */
+    @Override
+    public void close() throws IOException {
+        boolean complete = false;
+        try {
+            if (mRowsWritten != mHeight) {
+                throw new IOException("Only " + mRowsWritten + " of " + mHeight + " rows written");
+            }
+
+            while (!mPendingBlocks.isEmpty()) {
+                writeNextBlock();
+            }
+            writeChunk(IEND, new byte[0], 0);
+            complete = true;
+        } finally {
+            if (!complete) {
+                // Deflaters can only be released once no block uses them
+                for (Future<Block> pending : mPendingBlocks) {
+                    try {
+                        pending.get();
+                    } catch (ExecutionException | CancellationException ignore) {
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+
+            for (Deflater deflater : mDeflaters) {
+                deflater.end();
+            }
+            mOut.close();
+        }
+    }
+    //endregion
+
+    //region newBlock
+    /**
+     * @return Block for the next rows, primed with the end of the previous one
+     */
+    private Block newBlock() {
+        int rows = Math.min(mBlockRows, mHeight - mRowsWritten);
+        byte[] buffer = mFreeBlocks.poll();
+        if (buffer == null || buffer.length < rows * mRowBytes) {
+            buffer = new byte[rows * mRowBytes];
+        }
+        return new Block(buffer, mDictionary, mRowsWritten == 0);
+    }
+    //endregion
+
+    //region submit
+    /**
+     * Deflates the block, on the pool if there is one, and writes the oldest blocks once too many
+     * are pending
+     */
+    private void submit(Block block) throws IOException {
+        if (!block.last) {
+            // Copied now, the rows are reused once the block is written
+            int length = Math.min(DICTIONARY_SIZE, block.length);
+            mDictionary = Arrays.copyOfRange(block.rows, block.length - length, block.length);
+        }
+
+        if (mPool == null) {
+            mPendingBlocks.add(CompletableFuture.completedFuture(deflate(block)));
+        } else {
+            mPendingBlocks.add(mPool.submit(() -> deflate(block)));
+        }
+
+        while (mPendingBlocks.size() > mMaxPendingBlocks) {
+            writeNextBlock();
+        }
+    }
+    //endregion
+
+    //region deflate
+    /**
+     * Deflates the rows of the block on their own, ending on a sync flush or, for the last block,
+     * on the end of the stream. The first block starts with the zlib header, room is left at the
+     * end of the last one for the checksum of the stream.
+     */
+    private Block deflate(Block block) {
+        mCancellation.throwIfCancelled();
+
+        Deflater deflater = mDeflaters.poll();
+        if (deflater == null) {
+            // Raw deflate, the zlib header and checksum are written around the blocks
+            deflater = new Deflater(mLevel, true);
+        }
+
+        try {
+            deflater.reset();
+            if (block.dictionary != null) {
+                deflater.setDictionary(block.dictionary);
+            }
+            deflater.setInput(block.rows, 0, block.length);
+            if (block.last) {
+                deflater.finish();
+            }
+
+            byte[] out = new byte[block.length / 2 + ZLIB_HEADER_SIZE + ZLIB_TRAILER_SIZE + 64];
+            int length = 0;
+            if (block.first) {
+                length = writeZlibHeader(out, mLevel);
+            }
+
+            int flush = block.last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH;
+            while (true) {
+                if (length == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                int count = deflater.deflate(out, length, out.length - length, flush);
+                boolean full = length + count == out.length;
+                length += count;
+
+                // A sync flush is complete once it leaves room in the output
+                if (block.last ? deflater.finished() : !full) {
+                    break;
+                }
+            }
+            if (block.last && out.length - length < ZLIB_TRAILER_SIZE) {
+                out = Arrays.copyOf(out, length + ZLIB_TRAILER_SIZE);
+            }
+
+            Adler32 adler = new Adler32();
+            adler.update(block.rows, 0, block.length);
+
+            block.deflated = out;
+            block.deflatedLength = length;
+            block.adler = adler.getValue();
+            return block;
+        } finally {
+            mDeflaters.add(deflater);
+        }
+    }
+    //endregion
+
+    //region writeNextBlock
+    /**
+     * Waits for the oldest pending block and writes it as an IDAT chunk
+     */
+    private void writeNextBlock() throws IOException {
+        Block block;
+        try {
+            block = mPendingBlocks.peek().get();
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Unable to deflate", cause);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while deflating", exception);
+        }
+        mPendingBlocks.poll();
+
+        mAdler = combineAdler(mAdler, block.adler, block.length);
+        int length = block.deflatedLength;
+        if (block.last) {
+            putInt(block.deflated, length, (int) mAdler);
+            length += ZLIB_TRAILER_SIZE;
+        }
+        writeChunk(IDAT, block.deflated, length);
+
+        mFreeBlocks.add(block.rows);
+    }
+    //endregion
+
+    //region filterRow
+    private void filterRow(int[] pixels, int offset, byte[] row, int index) {
+        row[index++] = FILTER_SUB;
+
+        int previous = 0;
+        for (int x = 0; x < mWidth; x++) {
+            int pixel = pixels[offset + x];
+            row[index++] = (byte) ((pixel >> 16) - (previous >> 16));
+            row[index++] = (byte) ((pixel >> 8) - (previous >> 8));
+            row[index++] = (byte) (pixel - previous);
+            if (mBytesPerPixel == 4) {
+                row[index++] = (byte) ((pixel >>> 24) - (previous >>> 24));
+            }
+            previous = pixel;
+        }
+    }
+    //endregion
+
+    //region writeZlibHeader
+    /**
+     * Writes the 2 bytes zlib header of a deflate stream with a 32K window
+     * @return Number of bytes written
+     */
+    private static int writeZlibHeader(byte[] out, int level) {
+        int cmf = 0x78;
+        int flevel;
+        if (level == Deflater.DEFAULT_COMPRESSION) {
+            flevel = 2;
+        } else if (level < 2) {
+            flevel = 0;
+        } else if (level < 6) {
+            flevel = 1;
+        } else if (level == 6) {
+            flevel = 2;
+        } else {
+            flevel = 3;
+        }
+
+        int flg = flevel << 6;
+        // The header, read as a big endian short, must be a multiple of 31
+        flg += 31 - ((cmf << 8 | flg) % 31);
+        out[0] = (byte) cmf;
+        out[1] = (byte) flg;
+        return ZLIB_HEADER_SIZE;
+    }
+    //endregion
+
+    //region combineAdler
+    /**
+     * Same as zlib's adler32_combine
+     * @param adler1 Adler-32 of the first sequence
+     * @param adler2 Adler-32 of the second sequence
+     * @param length2 Length of the second sequence
+     * @return Adler-32 of both sequences one after the other
+     */
+    static long combineAdler(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xFFFF) + ((adler2 >> 16) & 0xFFFF) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= ((long) ADLER_BASE << 1)) {
+            sum2 -= ((long) ADLER_BASE << 1);
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+    //endregion
+
+    //region writeChunk
+    private void writeChunk(byte[] type, byte[] data, int length) throws IOException {
+        byte[] word = new byte[4];
+
+        putInt(word, 0, length);
+        mOut.write(word);
+        mOut.write(type);
+        mOut.write(data, 0, length);
+
+        mCrc.reset();
+        mCrc.update(type);
+        mCrc.update(data, 0, length);
+        putInt(word, 0, (int) mCrc.getValue());
+        mOut.write(word);
+    }
+    //endregion
+
+    //region putInt
+    private static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+    //endregion
+}
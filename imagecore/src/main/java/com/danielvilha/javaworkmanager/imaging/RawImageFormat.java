@@ -0,0 +1,203 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Layout of the raw intermediate files handed between workers: a fixed size header followed by
+ * the uncompressed pixel bytes, row by row without padding.
+ *
+ * <pre>
+ *   int magic        'BLRW'
+ *   int version
+ *   int pixelFormat  one of the PIXEL_FORMAT constants
+ *   int width
+ *   int height
+ *   int flags        FLAG_OPAQUE when every pixel is opaque
+ * </pre>
+ *
+ * All the header fields are big endian.
+ */
+public final class RawImageFormat {
+
+    //region Variables
+    public static final String FILE_EXTENSION = "rgba";
+
+    public static final int HEADER_SIZE = 24;
+
+    // 4 bytes per pixel, R G B A in memory order
+    public static final int PIXEL_FORMAT_RGBA_8888 = 1;
+    // 2 bytes per pixel, 5 bits red, 6 bits green, 5 bits blue
+    public static final int PIXEL_FORMAT_RGB_565 = 2;
+
+    // Every pixel is opaque, RGBA_8888 images can be blurred without their alpha channel
+    private static final int FLAG_OPAQUE = 1;
+
+    private static final int MAGIC = 0x424C5257; // BLRW
+    private static final int VERSION = 2;
+    //endregion
+
+    //region Header
+    /**
+     * Header of a raw image
+     */
+    public static final class Header {
+        public final int pixelFormat;
+        public final int width;
+        public final int height;
+        // Always true for RGB_565
+        public final boolean opaque;
+
+        /**
+         * @param pixelFormat One of the PIXEL_FORMAT constants
+         * @param width Image width
+         * @param height Image height
+         * @param opaque True if every pixel is opaque
+         */
+        public Header(int pixelFormat, int width, int height, boolean opaque) {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("Invalid size " + width + "x" + height);
+            }
+            bytesPerPixel(pixelFormat);
+
+            this.pixelFormat = pixelFormat;
+            this.width = width;
+            this.height = height;
+            this.opaque = opaque || pixelFormat == PIXEL_FORMAT_RGB_565;
+        }
+
+        /**
+         * @return Number of pixel bytes following the header
+         */
+        public long pixelBytes() {
+            return (long) width * height * bytesPerPixel(pixelFormat);
+        }
+
+        /**
+         * @return Size of the whole file
+         */
+        public long fileSize() {
+            return HEADER_SIZE + pixelBytes();
+        }
+    }
+    //endregion
+
+    //region bytesPerPixel
+    /**
+     * @param pixelFormat One of the PIXEL_FORMAT constants
+     * @return Number of bytes of each pixel
+     */
+    public static int bytesPerPixel(int pixelFormat) {
+        switch (pixelFormat) {
+            case PIXEL_FORMAT_RGBA_8888:
+                return 4;
+            case PIXEL_FORMAT_RGB_565:
+                return 2;
+            default:
+                throw new IllegalArgumentException("Unknown pixel format " + pixelFormat);
+        }
+    }
+    //endregion
+
+    //region writeHeader
+    /**
+     * Writes the header at the current position of the buffer
+     * @param buffer Buffer the header is written to
+     * @param header Header to write
+     */
+    public static void writeHeader(ByteBuffer buffer, Header header) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(header.pixelFormat)
+                .putInt(header.width)
+                .putInt(header.height)
+                .putInt(header.opaque ? FLAG_OPAQUE : 0);
+        buffer.order(order);
+    }
+    //endregion
+
+    //region readHeader
+    /**
+     * Reads the header at the current position of the buffer
+     * @param buffer Buffer holding a raw image
+     * @return The header
+     * @throws IOException Throws if the buffer doesn't hold a supported raw image
+     */
+    public static Header readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE) {
+            throw new IOException("Truncated raw image header");
+        }
+
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a raw image");
+            }
+
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported raw image version " + version);
+            }
+
+            Header header;
+            try {
+                header = new Header(buffer.getInt(), buffer.getInt(), buffer.getInt(),
+                        (buffer.getInt() & FLAG_OPAQUE) != 0);
+            } catch (IllegalArgumentException exception) {
+                throw new IOException("Invalid raw image header", exception);
+            }
+
+            if (buffer.remaining() < header.pixelBytes()) {
+                throw new IOException("Truncated raw image");
+            }
+            return header;
+        } finally {
+            buffer.order(order);
+        }
+    }
+    //endregion
+
+    //region writeBuffer
+    /**
+     * Writes a whole raw image, header and pixels, from a planar buffer at the current position
+     * of the buffer
+     * @param buffer Buffer with at least {@link Header#fileSize()} bytes remaining
+     * @param header Header of the image, the same size as the pixels
+     * @param pixels Pixels to write
+     */
+    public static void writeBuffer(ByteBuffer buffer, Header header, PixelBuffer pixels) {
+        if (pixels.width() != header.width || pixels.height() != header.height) {
+            throw new IllegalArgumentException("Pixels are not " + header.width + "x" + header.height);
+        }
+
+        writeHeader(buffer, header);
+        pixels.copyTo(buffer, header.pixelFormat, 0, header.height);
+    }
+    //endregion
+
+    //region readBuffer
+    /**
+     * Reads rows of a raw image whose header has just been read into a planar buffer
+     * @param buffer Buffer positioned on the first row to read
+     * @param header Header returned by {@link #readHeader(ByteBuffer)}
+     * @param pixels Buffer as wide as the image, the rows are written from its first row
+     * @param rows Number of rows to read
+     */
+    public static void readBuffer(ByteBuffer buffer, Header header, PixelBuffer pixels, int rows) {
+        if (pixels.width() != header.width) {
+            throw new IllegalArgumentException("Pixels are not " + header.width + " wide");
+        }
+        pixels.copyFrom(buffer, header.pixelFormat, 0, rows);
+    }
+    //endregion
+
+    //region RawImageFormat
+    private RawImageFormat() { }
+    //endregion
+}
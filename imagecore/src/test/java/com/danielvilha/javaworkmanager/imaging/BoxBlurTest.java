@@ -0,0 +1,107 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Checks the three boxes spread a pixel as much as the Gaussian they stand for.
+ */
+public class BoxBlurTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private static final float[] SIGMAS = { 2.2f, 3f, 5f, 10f, 25f, 60f };
+
+    @Test
+    public void boxVarianceMatchesSigma() {
+        for (float sigma : SIGMAS) {
+            int[] radii = BoxBlur.boxRadii(sigma);
+            int smallest = Integer.MAX_VALUE;
+            for (int radius : radii) {
+                smallest = Math.min(smallest, 2 * radius + 1);
+            }
+
+            // Swapping a box for the next odd width moves the variance by (w + 1) / 3
+            assertEquals("sigma " + sigma, sigma * sigma, boxVariance(radii), (smallest + 1) / 6.0 + 1e-9);
+        }
+    }
+
+    @Test
+    public void blurredImpulseHasBoxVariance() {
+        for (float sigma : SIGMAS) {
+            float radius = GaussianBlur.radiusForSigma(sigma);
+            int width = 2 * BoxBlur.support(radius) + 1;
+
+            PixelBuffer src = new PixelBuffer(width, 1, true);
+            for (int c = 0; c < src.channelCount(); c++) {
+                Arrays.fill(src.channel(c), 0, width, (short) 0);
+            }
+            src.channel(PixelBuffer.CHANNEL_RED)[width / 2] = (short) PixelBuffer.ONE;
+            PixelBuffer dst = new PixelBuffer(width, 1, true);
+
+            BoxBlur.blur(src, dst, radius, POOL, Cancellation.NONE);
+
+            short[] red = dst.channel(PixelBuffer.CHANNEL_RED);
+            double total = 0;
+            double moment = 0;
+            for (int x = 0; x < width; x++) {
+                double offset = x - width / 2;
+                total += red[x];
+                moment += offset * offset * red[x];
+            }
+
+            double expected = boxVariance(BoxBlur.boxRadii(sigma));
+            assertEquals("sigma " + sigma, expected, moment / total, 0.01 * expected + 0.05);
+        }
+    }
+
+    @Test
+    public void flatImageStaysFlat() {
+        PixelBuffer src = new PixelBuffer(50, 40, false);
+        for (int c = 0; c < src.channelCount(); c++) {
+            Arrays.fill(src.channel(c), (short) (c == PixelBuffer.CHANNEL_ALPHA ? PixelBuffer.ONE : 0x1234));
+        }
+        PixelBuffer dst = new PixelBuffer(50, 40, false);
+
+        BoxBlur.blur(src, dst, 12f, POOL, Cancellation.NONE);
+
+        for (int c = 0; c < dst.channelCount(); c++) {
+            short[] plane = dst.channel(c);
+            for (int i = 0; i < 50 * 40; i++) {
+                assertEquals(src.channel(c)[i], plane[i]);
+            }
+        }
+    }
+
+    @Test
+    public void supportCoversEveryBox() {
+        for (float sigma : SIGMAS) {
+            float radius = GaussianBlur.radiusForSigma(sigma);
+            int sum = 0;
+            for (int boxRadius : BoxBlur.boxRadii(sigma)) {
+                assertTrue(boxRadius >= 0);
+                sum += boxRadius;
+            }
+            assertEquals(sum, BoxBlur.support(radius));
+        }
+    }
+
+    /**
+     * A box of width w has the variance (w * w - 1) / 12, successive boxes add up
+     */
+    private static double boxVariance(int[] radii) {
+        double variance = 0;
+        for (int radius : radii) {
+            int width = 2 * radius + 1;
+            variance += (width * width - 1) / 12.0;
+        }
+        return variance;
+    }
+}
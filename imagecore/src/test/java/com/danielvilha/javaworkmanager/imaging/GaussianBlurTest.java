@@ -0,0 +1,142 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Compares the fixed point planar blur with a double precision Gaussian using the same kernel
+ * and the same clamped edges.
+ */
+public class GaussianBlurTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Test
+    public void matchesReference() {
+        checkAgainstReference(64, 48, 3f, 1);
+        checkAgainstReference(64, 48, 12.5f, 2);
+        checkAgainstReference(37, 100, 25f, 3);
+    }
+
+    @Test
+    public void clampsEdgesWhenKernelIsLargerThanImage() {
+        checkAgainstReference(7, 5, 9f, 4);
+        checkAgainstReference(1, 40, 6f, 5);
+        checkAgainstReference(40, 1, 6f, 6);
+    }
+
+    @Test
+    public void matchesReferenceBelowOnePixel() {
+        checkAgainstReference(20, 20, 0.5f, 7);
+        checkAgainstReference(20, 20, 0.1f, 8);
+    }
+
+    @Test
+    public void zeroRadiusKeepsImage() {
+        int[] argb = randomImage(16, 16, 9);
+        assertArrayEquals(argb, blur(argb, 16, 16, 0f, true));
+    }
+
+    @Test
+    public void onePixelImageKeepsItsValue() {
+        int[] argb = { 0xFF123456 };
+        assertArrayEquals(argb, blur(argb, 1, 1, 10f, true));
+
+        int[] transparent = { 0x80FF8040 };
+        assertArrayEquals(transparent, blur(transparent, 1, 1, 10f, false));
+    }
+
+    @Test
+    public void flatImageStaysFlat() {
+        int[] argb = new int[30 * 20];
+        Arrays.fill(argb, 0x80FF8040);
+        assertArrayEquals(argb, blur(argb, 30, 20, 7.5f, false));
+    }
+
+    /**
+     * Blurs a random opaque image and checks every channel is within 1 of the reference
+     */
+    private static void checkAgainstReference(int width, int height, float radius, long seed) {
+        int[] argb = randomImage(width, height, seed);
+        int[] actual = blur(argb, width, height, radius, true);
+
+        for (int shift = 0; shift <= 16; shift += 8) {
+            double[] expected = reference(argb, shift, width, height, radius);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(width + "x" + height + " radius " + radius + " pixel " + i + " shift " + shift,
+                        expected[i], (actual[i] >> shift) & 0xFF, 1.0);
+            }
+        }
+    }
+
+    private static int[] blur(int[] argb, int width, int height, float radius, boolean opaque) {
+        PixelBuffer src = new PixelBuffer(width, height, opaque);
+        src.copyFromArgb(argb, 0, width, 0, height);
+        PixelBuffer dst = new PixelBuffer(width, height, opaque);
+
+        GaussianBlur.blur(src, dst, radius, POOL, Cancellation.NONE);
+
+        int[] out = new int[width * height];
+        dst.copyToArgb(0, height, out, 0, width);
+        return out;
+    }
+
+    /**
+     * Separable Gaussian in doubles over one 8 bit channel, with the kernel of createKernel
+     */
+    private static double[] reference(int[] argb, int shift, int width, int height, float radius) {
+        int half = (int) Math.ceil(radius);
+        double sigma = GaussianBlur.sigmaForRadius(radius);
+        double[] weights = new double[2 * half + 1];
+        double sum = 0;
+        for (int k = -half; k <= half; k++) {
+            weights[k + half] = Math.exp(-(k * k) / (2 * sigma * sigma));
+            sum += weights[k + half];
+        }
+        for (int k = 0; k < weights.length; k++) {
+            weights[k] /= sum;
+        }
+
+        double[] horizontal = new double[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double value = 0;
+                for (int k = -half; k <= half; k++) {
+                    int sx = Math.max(0, Math.min(width - 1, x + k));
+                    value += weights[k + half] * ((argb[y * width + sx] >> shift) & 0xFF);
+                }
+                horizontal[y * width + x] = value;
+            }
+        }
+
+        double[] out = new double[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double value = 0;
+                for (int k = -half; k <= half; k++) {
+                    int sy = Math.max(0, Math.min(height - 1, y + k));
+                    value += weights[k + half] * horizontal[sy * width + x];
+                }
+                out[y * width + x] = value;
+            }
+        }
+        return out;
+    }
+
+    static int[] randomImage(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int[] argb = new int[width * height];
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return argb;
+    }
+}
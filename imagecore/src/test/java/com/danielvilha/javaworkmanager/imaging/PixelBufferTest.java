@@ -0,0 +1,114 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Round-trips of the premultiplied fixed point planes.
+ */
+public class PixelBufferTest {
+
+    @Test
+    public void opaquePixelsRoundTripExactly() {
+        int[] argb = everyChannelValue(0xFF);
+        assertArrayEquals(argb, roundTrip(argb, false));
+        assertArrayEquals(argb, roundTrip(argb, true));
+    }
+
+    @Test
+    public void transparentPixelsBecomeZero() {
+        int[] out = roundTrip(everyChannelValue(0), false);
+        for (int pixel : out) {
+            assertEquals(0, pixel);
+        }
+    }
+
+    @Test
+    public void almostTransparentPixelsKeepTheirColor() {
+        // An 8 bit premultiplied bitmap would lose them all, the fractional bits keep 1 of error
+        int[] argb = everyChannelValue(1);
+        int[] out = roundTrip(argb, false);
+
+        for (int i = 0; i < argb.length; i++) {
+            assertEquals(1, out[i] >>> 24);
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int expected = (argb[i] >> shift) & 0xFF;
+                int actual = (out[i] >> shift) & 0xFF;
+                assertTrue("pixel " + Integer.toHexString(argb[i]) + " became " + Integer.toHexString(out[i]),
+                        Math.abs(expected - actual) <= 1);
+            }
+        }
+    }
+
+    @Test
+    public void translucentPixelsRoundTripExactly() {
+        for (int alpha = 2; alpha < 0xFF; alpha++) {
+            int[] argb = everyChannelValue(alpha);
+            assertArrayEquals("alpha " + alpha, argb, roundTrip(argb, false));
+        }
+    }
+
+    @Test
+    public void rawPixelFormatsRoundTrip() {
+        int[] argb = everyChannelValue(0xFF);
+        PixelBuffer buffer = new PixelBuffer(argb.length, 1, true);
+        buffer.copyFromArgb(argb, 0, argb.length, 0, 1);
+
+        ByteBuffer bytes = ByteBuffer.allocate(4 * argb.length);
+        buffer.copyTo(bytes, RawImageFormat.PIXEL_FORMAT_RGBA_8888, 0, 1);
+        bytes.flip();
+        PixelBuffer copy = new PixelBuffer(argb.length, 1, true);
+        copy.copyFrom(bytes, RawImageFormat.PIXEL_FORMAT_RGBA_8888, 0, 1);
+
+        int[] out = new int[argb.length];
+        copy.copyToArgb(0, 1, out, 0, argb.length);
+        assertArrayEquals(argb, out);
+    }
+
+    @Test
+    public void obtainReusesLargeEnoughBuffers() {
+        PixelBuffer buffer = new PixelBuffer(10, 10, false);
+        assertTrue(buffer == PixelBuffer.obtain(buffer, 20, 5, false));
+        assertEquals(20, buffer.width());
+        assertEquals(5, buffer.height());
+        assertTrue(buffer != PixelBuffer.obtain(buffer, 20, 6, false));
+        assertTrue(buffer != PixelBuffer.obtain(buffer, 5, 5, true));
+    }
+
+    @Test
+    public void byteCountCoversEveryPlane() {
+        assertEquals(3 * 10 * 10 * 2, new PixelBuffer(10, 10, true).byteCount());
+        assertEquals(4 * 10 * 10 * 2, new PixelBuffer(10, 10, false).byteCount());
+
+        // Reshaping keeps the planes, and their size
+        PixelBuffer buffer = new PixelBuffer(10, 10, false);
+        assertEquals(4 * 10 * 10 * 2, PixelBuffer.obtain(buffer, 5, 5, false).byteCount());
+    }
+
+    /**
+     * Pixels of the given alpha, each color channel going through every 8 bit value
+     */
+    private static int[] everyChannelValue(int alpha) {
+        int[] argb = new int[256];
+        for (int v = 0; v < 256; v++) {
+            argb[v] = alpha << 24 | v << 16 | (255 - v) << 8 | (v * 7 & 0xFF);
+        }
+        return argb;
+    }
+
+    private static int[] roundTrip(int[] argb, boolean opaque) {
+        PixelBuffer buffer = new PixelBuffer(16, argb.length / 16, opaque);
+        buffer.copyFromArgb(argb, 0, 16, 0, buffer.height());
+
+        int[] out = new int[argb.length];
+        buffer.copyToArgb(0, buffer.height(), out, 0, 16);
+        return out;
+    }
+}
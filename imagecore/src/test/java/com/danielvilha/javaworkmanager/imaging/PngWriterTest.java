@@ -0,0 +1,303 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Decodes the output of the parallel encoder back, with Inflater and with ImageIO. Block sizes
+ * follow BLOCK_BYTES, so the images below are sized to span one, a few or one block per row.
+ */
+public class PngWriterTest {
+
+    private static final int BLOCK_BYTES = 256 * 1024;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Test
+    public void roundTripsSinglePixel() throws IOException {
+        checkRoundTrip(1, 1, true);
+        checkRoundTrip(1, 1, false);
+    }
+
+    @Test
+    public void roundTripsOnePixelWideImages() throws IOException {
+        // 5 bytes per row, a little over 2 blocks
+        checkRoundTrip(1, 120000, true);
+        checkRoundTrip(1, 40, false);
+    }
+
+    @Test
+    public void roundTripsWidthsNotDividingTheBlock() throws IOException {
+        checkRoundTrip(7, 3, true);
+        checkRoundTrip(333, 600, false);
+        checkRoundTrip(1000, 200, true);
+        checkRoundTrip(1023, 129, false);
+    }
+
+    @Test
+    public void roundTripsRowsLargerThanABlock() throws IOException {
+        checkRoundTrip(70000, 3, true);
+    }
+
+    @Test
+    public void outputDoesNotDependOnThePool() throws IOException {
+        int width = 500;
+        int height = 700;
+        int[] argb = randomImage(width, height, true, 11);
+        byte[] expected = encode(argb, width, height, true, null);
+
+        for (int parallelism : new int[] { 1, 2, 3, 8 }) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                assertArrayEquals("parallelism " + parallelism, expected, encode(argb, width, height, true, pool));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void pixelBufferRowsMatchPackedRows() throws IOException {
+        int width = 300;
+        int height = 1000;
+        int[] argb = randomImage(width, height, false, 12);
+        PixelBuffer buffer = new PixelBuffer(width, height, true);
+        buffer.copyFromArgb(argb, 0, width, 0, height);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PngWriter writer = new PngWriter(out, width, height, false, Deflater.DEFAULT_COMPRESSION, POOL,
+                Cancellation.NONE)) {
+            writer.writeRows(buffer, 0, 400);
+            writer.writeRows(buffer, 400, height - 400);
+        }
+
+        assertArrayEquals(encode(argb, width, height, false, POOL), out.toByteArray());
+    }
+
+    @Test
+    public void combineAdlerMatchesSingleStream() {
+        Random random = new Random(13);
+        byte[] data = new byte[200000];
+        random.nextBytes(data);
+
+        // Around and well past ADLER_BASE, where the sums wrap
+        for (int split : new int[] { 0, 1, 100, 65520, 65521, 65522, 131100, 199999, 200000 }) {
+            Adler32 first = new Adler32();
+            first.update(data, 0, split);
+            Adler32 second = new Adler32();
+            second.update(data, split, data.length - split);
+            Adler32 whole = new Adler32();
+            whole.update(data, 0, data.length);
+
+            assertEquals("split at " + split, whole.getValue(),
+                    PngWriter.combineAdler(first.getValue(), second.getValue(), data.length - split));
+        }
+
+        // Repeated high bytes push both sums to their largest values
+        byte[] ones = new byte[100000];
+        Arrays.fill(ones, (byte) 0xFF);
+        Adler32 first = new Adler32();
+        first.update(ones, 0, 70000);
+        Adler32 second = new Adler32();
+        second.update(ones, 70000, 30000);
+        Adler32 whole = new Adler32();
+        whole.update(ones, 0, ones.length);
+        assertEquals(whole.getValue(), PngWriter.combineAdler(first.getValue(), second.getValue(), 30000));
+    }
+
+    /**
+     * Encodes a random image, then decodes it with Inflater and with ImageIO and compares the
+     * pixels. Inflater checks the combined Adler-32 of the stream.
+     */
+    private static void checkRoundTrip(int width, int height, boolean alpha) throws IOException {
+        int[] argb = randomImage(width, height, alpha, width * 31L + height);
+        byte[] png = encode(argb, width, height, alpha, POOL);
+
+        int rowBytes = 1 + width * (alpha ? 4 : 3);
+        int blockRows = Math.max(1, BLOCK_BYTES / rowBytes);
+        int expectedBlocks = (height + blockRows - 1) / blockRows;
+
+        Decoded decoded = decode(png);
+        String message = width + "x" + height + (alpha ? " RGBA" : " RGB");
+        assertEquals(message, width, decoded.width);
+        assertEquals(message, height, decoded.height);
+        assertEquals(message + " IDAT chunks", expectedBlocks, decoded.idatChunks);
+        assertArrayEquals(message, argb, decoded.argb);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(message, width, image.getWidth());
+        assertEquals(message, height, image.getHeight());
+        int[] read = image.getRGB(0, 0, width, height, null, 0, width);
+        assertArrayEquals(message + " ImageIO", argb, read);
+    }
+
+    /**
+     * Writes the image in uneven groups of rows, so block boundaries fall inside a call
+     */
+    private static byte[] encode(int[] argb, int width, int height, boolean alpha, ForkJoinPool pool)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PngWriter writer = new PngWriter(out, width, height, alpha, Deflater.DEFAULT_COMPRESSION, pool,
+                Cancellation.NONE)) {
+            int y = 0;
+            int rows = 1;
+            while (y < height) {
+                int count = Math.min(rows, height - y);
+                writer.writeRows(argb, y * width, width, count);
+                y += count;
+                rows = rows * 3 + 1;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static final class Decoded {
+        int width;
+        int height;
+        int idatChunks;
+        int[] argb;
+    }
+
+    /**
+     * Minimal PNG decoder for 8 bit RGB and RGBA images, checking every chunk CRC
+     */
+    private static Decoded decode(byte[] png) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(png);
+        byte[] signature = new byte[8];
+        buffer.get(signature);
+        assertArrayEquals(new byte[] { (byte) 137, 80, 78, 71, 13, 10, 26, 10 }, signature);
+
+        Decoded decoded = new Decoded();
+        int bytesPerPixel = 0;
+        ByteArrayOutputStream idat = new ByteArrayOutputStream();
+        boolean ended = false;
+
+        while (!ended) {
+            int length = buffer.getInt();
+            byte[] type = new byte[4];
+            buffer.get(type);
+            byte[] data = new byte[length];
+            buffer.get(data);
+
+            CRC32 crc = new CRC32();
+            crc.update(type);
+            crc.update(data);
+            assertEquals(crc.getValue(), buffer.getInt() & 0xFFFFFFFFL);
+
+            String name = new String(type, "US-ASCII");
+            if ("IHDR".equals(name)) {
+                ByteBuffer header = ByteBuffer.wrap(data);
+                decoded.width = header.getInt();
+                decoded.height = header.getInt();
+                assertEquals(8, header.get());
+                int colorType = header.get();
+                assertTrue(colorType == 2 || colorType == 6);
+                bytesPerPixel = colorType == 6 ? 4 : 3;
+            } else if ("IDAT".equals(name)) {
+                decoded.idatChunks++;
+                idat.write(data);
+            } else if ("IEND".equals(name)) {
+                ended = true;
+            }
+        }
+        assertEquals(0, buffer.remaining());
+
+        int rowBytes = decoded.width * bytesPerPixel;
+        byte[] raw = new byte[decoded.height * (rowBytes + 1)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(idat.toByteArray());
+            int length = inflater.inflate(raw);
+            assertEquals(raw.length, length);
+            assertTrue("zlib stream not finished", inflater.finished());
+            assertEquals(0, inflater.getRemaining());
+        } catch (DataFormatException exception) {
+            throw new IOException(exception);
+        } finally {
+            inflater.end();
+        }
+
+        decoded.argb = new int[decoded.width * decoded.height];
+        byte[] previous = new byte[rowBytes];
+        byte[] row = new byte[rowBytes];
+        for (int y = 0; y < decoded.height; y++) {
+            int start = y * (rowBytes + 1);
+            unfilter(raw[start], raw, start + 1, row, previous, bytesPerPixel);
+
+            for (int x = 0; x < decoded.width; x++) {
+                int i = x * bytesPerPixel;
+                int a = bytesPerPixel == 4 ? row[i + 3] & 0xFF : 0xFF;
+                decoded.argb[y * decoded.width + x] =
+                        a << 24 | (row[i] & 0xFF) << 16 | (row[i + 1] & 0xFF) << 8 | (row[i + 2] & 0xFF);
+            }
+
+            byte[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+        return decoded;
+    }
+
+    private static void unfilter(int filter, byte[] raw, int offset, byte[] row, byte[] previous, int bpp) {
+        for (int i = 0; i < row.length; i++) {
+            int left = i >= bpp ? row[i - bpp] & 0xFF : 0;
+            int up = previous[i] & 0xFF;
+            int upLeft = i >= bpp ? previous[i - bpp] & 0xFF : 0;
+            int predictor;
+            switch (filter) {
+                case 0: predictor = 0; break;
+                case 1: predictor = left; break;
+                case 2: predictor = up; break;
+                case 3: predictor = (left + up) >> 1; break;
+                case 4: predictor = paeth(left, up, upLeft); break;
+                default: throw new AssertionError("Unknown filter " + filter);
+            }
+            row[i] = (byte) (raw[offset + i] + predictor);
+        }
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private static int[] randomImage(int width, int height, boolean alpha, long seed) {
+        Random random = new Random(seed);
+        int[] argb = new int[width * height];
+        for (int i = 0; i < argb.length; i++) {
+            // Mostly smooth so blocks compress, with noise so they don't compress to nothing
+            int base = (i % width) * 255 / Math.max(1, width - 1);
+            int noise = random.nextInt(16);
+            int a = alpha ? random.nextInt(256) : 0xFF;
+            argb[i] = a << 24 | ((base + noise) & 0xFF) << 16 | ((base * 3 + noise) & 0xFF) << 8 | random.nextInt(256);
+        }
+        return argb;
+    }
+}
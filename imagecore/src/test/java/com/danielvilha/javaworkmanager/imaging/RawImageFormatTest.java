@@ -0,0 +1,69 @@
+package com.danielvilha.javaworkmanager.imaging;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by danielvilha on 2026-10-17
+ *
+ * Round-trips of the raw intermediate header and pixels.
+ */
+public class RawImageFormatTest {
+
+    @Test
+    public void headerKeepsOpacity() throws IOException {
+        assertTrue(roundTrip(new RawImageFormat.Header(RawImageFormat.PIXEL_FORMAT_RGBA_8888, 3, 2, true)).opaque);
+        assertFalse(roundTrip(new RawImageFormat.Header(RawImageFormat.PIXEL_FORMAT_RGBA_8888, 3, 2, false)).opaque);
+    }
+
+    @Test
+    public void rgb565IsAlwaysOpaque() throws IOException {
+        RawImageFormat.Header header = new RawImageFormat.Header(RawImageFormat.PIXEL_FORMAT_RGB_565, 3, 2, false);
+        assertTrue(header.opaque);
+        assertTrue(roundTrip(header).opaque);
+    }
+
+    @Test
+    public void opaquePixelsRoundTrip() throws IOException {
+        int width = 40;
+        int height = 30;
+        int[] argb = GaussianBlurTest.randomImage(width, height, 21);
+        PixelBuffer pixels = new PixelBuffer(width, height, true);
+        pixels.copyFromArgb(argb, 0, width, 0, height);
+
+        RawImageFormat.Header header = new RawImageFormat.Header(RawImageFormat.PIXEL_FORMAT_RGBA_8888, width,
+                height, pixels.isOpaque());
+        ByteBuffer buffer = ByteBuffer.allocate((int) header.fileSize());
+        RawImageFormat.writeBuffer(buffer, header, pixels);
+        assertEquals(0, buffer.remaining());
+        buffer.flip();
+
+        RawImageFormat.Header read = RawImageFormat.readHeader(buffer);
+        PixelBuffer copy = new PixelBuffer(width, height, read.opaque);
+        RawImageFormat.readBuffer(buffer, read, copy, height);
+
+        int[] out = new int[width * height];
+        copy.copyToArgb(0, height, out, 0, width);
+        assertArrayEquals(argb, out);
+    }
+
+    private static RawImageFormat.Header roundTrip(RawImageFormat.Header header) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) header.fileSize());
+        RawImageFormat.writeHeader(buffer, header);
+        assertEquals(RawImageFormat.HEADER_SIZE, buffer.position());
+        buffer.rewind();
+
+        RawImageFormat.Header read = RawImageFormat.readHeader(buffer);
+        assertEquals(header.pixelFormat, read.pixelFormat);
+        assertEquals(header.width, read.width);
+        assertEquals(header.height, read.height);
+        return read;
+    }
+}